@@ -0,0 +1,55 @@
+package com.starworks.inferno;
+
+/**
+ * Timing helpers shared by the benchmarks. Each benchmark is a plain main
+ * class run against the compiled sources, for example:
+ *
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes com.starworks.inferno.IterationBenchmark
+ * </pre>
+ *
+ * A measurement repeats its operation a number of times after warming it up,
+ * and keeps the fastest run, which is the least disturbed by the collector
+ * and by other processes.
+ */
+final class Bench {
+
+	static final int WARMUP_RUNS = 10;
+	static final int RUNS = 10;
+
+	private Bench() {
+	}
+
+	/**
+	 * Returns the fastest of the timed runs of the operation, in nanoseconds.
+	 */
+	static long best(Runnable operation) {
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			operation.run();
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			operation.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	/**
+	 * Prints the time per operation and the throughput of a run of the
+	 * specified number of operations.
+	 */
+	static void report(String name, long nanos, long operations) {
+		System.out.printf("%-32s %8.2f ns/op %10.2f Mops/s%n", name, (double) nanos / operations, operations * 1e3 / nanos);
+	}
+
+	/**
+	 * Returns the integer argument at the index, or the default value if it was
+	 * not given.
+	 */
+	static int intArg(String[] args, int index, int defaultValue) {
+		return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+	}
+}
@@ -0,0 +1,93 @@
+package com.starworks.inferno;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntUnaryOperator;
+
+import com.starworks.inferno.collections.ChunkedPool;
+
+/**
+ * Measures the throughput of reading entries of the entity pool from 1 to 64
+ * threads at once, all reading the same chunks. Reads do not write to any
+ * shared state, so the throughput should grow with the threads up to the
+ * number of processors. For comparison, the same reads are also made holding
+ * the read lock of their chunk, as every read did before.
+ *
+ * <p>
+ * Takes the number of reads per thread as its argument, 4M by default.
+ */
+public final class ChunkReadBenchmark {
+
+	private static final int ENTITY_COUNT = 1 << 16;
+	private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32, 64 };
+
+	record Position(float x, float y) {
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int reads = Bench.intArg(args, 0, 1 << 22);
+		Registry registry = new Registry();
+		int[] ids = new int[ENTITY_COUNT];
+		for (int i = 0; i < ENTITY_COUNT; i++) {
+			ids[i] = registry.emplace(new Position(i, 0)).getID();
+		}
+		ChunkedPool<Entity> pool = registry.getEntityPool();
+		ChunkedPool.IDFactory idFactory = pool.getIDFactory();
+		StampedLock[] locks = new StampedLock[idFactory.getChunkCount()];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new StampedLock();
+		}
+		IntUnaryOperator lockFree = id -> pool.get(id).getID();
+		IntUnaryOperator locked = id -> {
+			StampedLock lock = locks[idFactory.getChunkID(id)];
+			long stamp = lock.readLock();
+			try {
+				return pool.get(id).getID();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		};
+		for (int threadCount : THREAD_COUNTS) {
+			Bench.report(threadCount + " readers, locked", best(ids, threadCount, reads, locked), (long) threadCount * reads);
+			Bench.report(threadCount + " readers, lock-free", best(ids, threadCount, reads, lockFree), (long) threadCount * reads);
+		}
+		registry.close();
+	}
+
+	private static long best(int[] ids, int threadCount, int reads, IntUnaryOperator read) throws InterruptedException {
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < 5; run++) {
+			best = Math.min(best, run(ids, threadCount, reads, read));
+		}
+		return best;
+	}
+
+	private static long run(int[] ids, int threadCount, int reads, IntUnaryOperator read) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		long[] sums = new long[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			int thread = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				long sum = 0;
+				int offset = thread * 7919;
+				for (int i = 0; i < reads; i++) {
+					sum += read.applyAsInt(ids[(offset + i) & (ENTITY_COUNT - 1)]);
+				}
+				sums[thread] = sum;
+			});
+			threads[t].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return System.nanoTime() - begin;
+	}
+}
@@ -0,0 +1,66 @@
+package com.starworks.inferno;
+
+/**
+ * Checks that {@code forEach}, {@code forEachComponent} and
+ * {@code forEachWithEntity} allocate nothing per row. Each run may allocate a
+ * few objects whatever the number of rows, so the check allows less than a
+ * hundredth of a byte per row, far below the size of any object.
+ */
+public class ForEachAllocationTest {
+
+	private static final int ROWS = 1 << 16;
+	private static final int WARMUP_RUNS = 20;
+	private static final double MAX_BYTES_PER_ROW = 0.01;
+
+	static final class Position {
+		float x, y;
+	}
+
+	record Velocity(float x, float y) {
+	}
+
+	record Mass(float kg) {
+	}
+
+	private Registry m_registry;
+
+	public void setUp() {
+		m_registry = new Registry();
+		for (int i = 0; i < ROWS; i++) {
+			m_registry.emplace(new Position(), new Velocity(1, 2), new Mass(1));
+		}
+	}
+
+	public void tearDown() {
+		m_registry.close();
+	}
+
+	public void testForEachComponent() {
+		View.Of1<Position> view = m_registry.view(Position.class);
+		assertAllocationFree("forEachComponent", () -> view.forEachComponent(position -> position.x++));
+	}
+
+	public void testForEach() {
+		View.Of2<Position, Velocity> view = m_registry.view(Position.class, Velocity.class);
+		assertAllocationFree("Of2 forEach", () -> view.forEach((position, velocity) -> position.x += velocity.x()));
+		View.Of3<Position, Velocity, Mass> view3 = m_registry.view(Position.class, Velocity.class, Mass.class);
+		assertAllocationFree("Of3 forEach", () -> view3.forEach((position, velocity, mass) -> position.x += velocity.x() / mass.kg()));
+	}
+
+	public void testForEachWithEntity() {
+		View.Of1<Position> view = m_registry.view(Position.class);
+		assertAllocationFree("Of1 forEachWithEntity", () -> view.forEachWithEntity((position, entity) -> position.x++));
+		View.Of2<Position, Velocity> view2 = m_registry.view(Position.class, Velocity.class);
+		assertAllocationFree("Of2 forEachWithEntity", () -> view2.forEachWithEntity((position, velocity, entity) -> position.x += velocity.x()));
+	}
+
+	private static void assertAllocationFree(String name, Runnable operation) {
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			operation.run();
+		}
+		double bytesPerRow = (double) ForEachBenchmark.allocatedBytes(operation) / ROWS;
+		if (bytesPerRow >= MAX_BYTES_PER_ROW) {
+			throw new AssertionError(name + " allocated " + bytesPerRow + " bytes per row");
+		}
+	}
+}
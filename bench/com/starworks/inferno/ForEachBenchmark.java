@@ -0,0 +1,74 @@
+package com.starworks.inferno;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the time and the memory allocated per row by the arity-specialized
+ * {@code forEach} and {@code forEachWithEntity} of a view, next to its stream
+ * of tuples. The memory is read from the allocation counter of the current
+ * thread around a whole run; the few objects allocated once per run amount to
+ * a fraction of a byte per row.
+ *
+ * <p>
+ * Takes the number of entities as its argument, 1M by default.
+ *
+ * @see ForEachAllocationTest
+ */
+public final class ForEachBenchmark {
+
+	static final class Position {
+		float x, y;
+
+		Position(float x, float y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	record Velocity(float x, float y) {
+	}
+
+	record Mass(float kg) {
+	}
+
+	public static void main(String[] args) {
+		int count = Bench.intArg(args, 0, 1 << 20);
+		Registry registry = new Registry();
+		for (int i = 0; i < count; i++) {
+			registry.emplace(new Position(i, 0), new Velocity(1, 2), new Mass(1));
+		}
+		View.Of1<Position> view1 = registry.view(Position.class);
+		View.Of2<Position, Velocity> view2 = registry.view(Position.class, Velocity.class);
+		View.Of3<Position, Velocity, Mass> view3 = registry.view(Position.class, Velocity.class, Mass.class);
+
+		measure("Of2 stream", count, () -> view2.stream().forEach(with -> with.component1().x += with.component2().x()));
+		measure("Of1 forEachComponent", count, () -> view1.forEachComponent(position -> position.x++));
+		measure("Of2 forEach", count, () -> view2.forEach((position, velocity) -> position.x += velocity.x()));
+		measure("Of2 forEachWithEntity", count, () -> view2.forEachWithEntity((position, velocity, entity) -> position.x += velocity.x()));
+		measure("Of3 forEach", count, () -> view3.forEach((position, velocity, mass) -> position.x += velocity.x() / mass.kg()));
+		registry.close();
+	}
+
+	/**
+	 * Reports the time and the bytes allocated per row of the operation.
+	 */
+	private static void measure(String name, int rows, Runnable operation) {
+		long nanos = Bench.best(operation);
+		Bench.report(name, nanos, rows);
+		System.out.printf("%-32s %8.4f bytes/row%n", "", (double) allocatedBytes(operation) / rows);
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread while running
+	 * the operation once.
+	 */
+	static long allocatedBytes(Runnable operation) {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadID);
+		operation.run();
+		return threads.getThreadAllocatedBytes(threadID) - before;
+	}
+}
@@ -0,0 +1,130 @@
+package com.starworks.inferno;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.starworks.inferno.collections.ChunkedPool;
+
+/**
+ * Measures the iteration of two components over every entity of a registry,
+ * through the iterator, the stream and the {@code forEach} of a view, which
+ * read the columns of the chunks. For comparison, it also iterates the layout the registry used before
+ * the columns, rebuilt here as a pool of rows: each entity held its own array
+ * of components, and the iterator of a view walked the entities of the pool
+ * and read the components through each of them.
+ *
+ * <p>
+ * Takes the number of entities as its argument, 1M by default.
+ */
+public final class IterationBenchmark {
+
+	static final class Position {
+		float x, y;
+
+		Position(float x, float y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	record Velocity(float x, float y) {
+	}
+
+	static final class Row implements ChunkedPool.Poolable {
+		int m_id;
+		final Object m_archetype;
+		final Object[] m_components;
+
+		Row(Object archetype, Object... components) {
+			this.m_archetype = archetype;
+			this.m_components = components;
+		}
+
+		@Override
+		public int getID() {
+			return m_id;
+		}
+
+		@Override
+		public void setID(int id) {
+			m_id = id;
+		}
+	}
+
+	/**
+	 * Iterates the rows the way the iterators of a view did before the columns,
+	 * checking the archetype of each row and building a tuple from its array of
+	 * components. Empty slots of the pool are skipped.
+	 */
+	static final class RowIterator implements Iterator<View.With2<Position, Velocity>> {
+
+		private final Iterator<Row> m_iterator;
+		private final Object m_archetype;
+		private Row m_next;
+
+		RowIterator(Iterator<Row> iterator, Object archetype) {
+			this.m_iterator = iterator;
+			this.m_archetype = archetype;
+			this.m_next = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (m_next == null && m_iterator.hasNext()) {
+				Row row = m_iterator.next();
+				if (row != null && row.m_archetype == m_archetype) {
+					m_next = row;
+				}
+			}
+			return m_next != null;
+		}
+
+		@Override
+		public View.With2<Position, Velocity> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object[] components = m_next.m_components;
+			m_next = null;
+			return new View.With2<Position, Velocity>((Position) components[0], (Velocity) components[1], null);
+		}
+	}
+
+	public static void main(String[] args) {
+		int count = Bench.intArg(args, 0, 1 << 20);
+		Registry registry = new Registry();
+		ChunkedPool<Row> pool = new ChunkedPool<Row>();
+		ChunkedPool.Allocator<Row> rows = pool.newAllocator();
+		Object archetype = new Object();
+		for (int i = 0; i < count; i++) {
+			registry.emplace(new Position(i, 0), new Velocity(1, 2));
+			int id = rows.nextID();
+			rows.register(id, new Row(archetype, new Position(i, 0), new Velocity(1, 2))).setID(id);
+		}
+		View.Of2<Position, Velocity> view = registry.view(Position.class, Velocity.class);
+
+		Bench.report("rows (previous layout)", Bench.best(() -> {
+			for (Iterator<View.With2<Position, Velocity>> iterator = new RowIterator(rows.iterator(), archetype); iterator.hasNext();) {
+				View.With2<Position, Velocity> with = iterator.next();
+				with.component1().x += with.component2().x();
+				with.component1().y += with.component2().y();
+			}
+		}), count);
+		Bench.report("view iterator (columns)", Bench.best(() -> {
+			for (View.With2<Position, Velocity> with : view) {
+				with.component1().x += with.component2().x();
+				with.component1().y += with.component2().y();
+			}
+		}), count);
+		Bench.report("view stream (columns)", Bench.best(() -> view.stream().forEach(with -> {
+			with.component1().x += with.component2().x();
+			with.component1().y += with.component2().y();
+		})), count);
+		Bench.report("view forEach (columns)", Bench.best(() -> view.forEach((position, velocity) -> {
+			position.x += velocity.x();
+			position.y += velocity.y();
+		})), count);
+		pool.close();
+		registry.close();
+	}
+}
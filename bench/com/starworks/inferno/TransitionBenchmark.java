@@ -0,0 +1,90 @@
+package com.starworks.inferno;
+
+/**
+ * Measures the throughput of adding a component to entities and removing it
+ * again, each of which moves the entity to another archetype. The registry
+ * follows the edges cached by the archetypes; for comparison, the same moves
+ * are also made the way they were before the edges, merging the components of
+ * the entity into a new array and looking its archetype up by signature.
+ *
+ * <p>
+ * Takes the number of entities as its argument, 64K by default.
+ */
+public final class TransitionBenchmark {
+
+	record Position(float x, float y) {
+	}
+
+	record Velocity(float x, float y) {
+	}
+
+	record Health(int hp) {
+	}
+
+	public static void main(String[] args) {
+		int count = Bench.intArg(args, 0, 1 << 16);
+		Registry registry = new Registry();
+		Entity[] entities = new Entity[count];
+		for (int i = 0; i < count; i++) {
+			entities[i] = registry.emplace(new Position(i, 0), new Velocity(1, 2));
+		}
+		Health health = new Health(100);
+		ArchetypeList archetypes = registry.getArchetypeList();
+
+		measure("uncached", count, () -> {
+			for (Entity entity : entities) {
+				Object[] components = entity.getComponents();
+				Object[] merged = new Object[components.length + 1];
+				System.arraycopy(components, 0, merged, 0, components.length);
+				merged[components.length] = health;
+				Archetype archetype = archetypes.getOrCreate(merged);
+				entity.getArchetype().evict(entity);
+				archetype.attach(entity, merged);
+			}
+		}, () -> {
+			for (Entity entity : entities) {
+				Archetype previous = entity.getArchetype();
+				Object[] components = entity.getComponents();
+				int removedIndex = previous.indexOf(Health.class);
+				Object[] remaining = new Object[components.length - 1];
+				System.arraycopy(components, 0, remaining, 0, removedIndex);
+				System.arraycopy(components, removedIndex + 1, remaining, removedIndex, remaining.length - removedIndex);
+				Archetype archetype = archetypes.getOrCreate(remaining);
+				previous.evict(entity);
+				archetype.attach(entity, remaining);
+			}
+		});
+		measure("cached edges", count, () -> {
+			for (Entity entity : entities) {
+				registry.add(entity, health);
+			}
+		}, () -> {
+			for (Entity entity : entities) {
+				registry.remove(entity, Health.class);
+			}
+		});
+		registry.close();
+	}
+
+	/**
+	 * Reports the fastest runs of adding the component to every entity and of
+	 * removing it again.
+	 */
+	private static void measure(String name, int count, Runnable add, Runnable remove) {
+		long bestAdd = Long.MAX_VALUE;
+		long bestRemove = Long.MAX_VALUE;
+		for (int run = 0; run < Bench.WARMUP_RUNS + Bench.RUNS; run++) {
+			long start = System.nanoTime();
+			add.run();
+			long added = System.nanoTime();
+			remove.run();
+			long removed = System.nanoTime();
+			if (run >= Bench.WARMUP_RUNS) {
+				bestAdd = Math.min(bestAdd, added - start);
+				bestRemove = Math.min(bestRemove, removed - added);
+			}
+		}
+		Bench.report(name + " add", bestAdd, count);
+		Bench.report(name + " remove", bestRemove, count);
+	}
+}
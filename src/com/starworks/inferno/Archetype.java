@@ -1,39 +1,175 @@
 package com.starworks.inferno;
 
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
 import com.starworks.inferno.collections.ChunkedPool;
 import com.starworks.inferno.collections.ChunkedPool.IDFactory;
+import com.starworks.inferno.collections.ClassMap.ClassIndex;
+import com.starworks.inferno.collections.FlatColumn;
+import com.starworks.inferno.collections.HandleTable;
+import com.starworks.inferno.collections.SparseSet;
 
 public final class Archetype {
 
-	public static final int COMPONENT_INDEX_CAPACITY = 1 << 10;
-
 	private final ArchetypeList m_list;
 	private final ChunkedPool.Allocator<Entity> m_allocator;
 	private final Class<?>[] m_componentTypes;
-	private final int[] m_componentIndices;
+	private final ClassIndex m_signature;
+	private final boolean m_shared;
+	private volatile Edge[] m_addEdges;
+	private volatile Edge[] m_removeEdges;
 
 	protected Archetype(ArchetypeList archetypeList, ChunkedPool.Allocator<Entity> allocator, Class<?>... componentTypes) {
 		this.m_list = archetypeList;
 		this.m_allocator = allocator;
+		this.m_allocator.attach(this);
 		this.m_componentTypes = componentTypes;
-		if (m_componentTypes.length < 1) {
-			this.m_componentIndices = null;
-			return;
-		}
-		this.m_componentIndices = new int[COMPONENT_INDEX_CAPACITY];
-		for (int i = 0; i < componentTypes.length; ++i) {
-			m_componentIndices[archetypeList.getClassMap().indexOf(componentTypes[i])] = i + 1;
+		this.m_addEdges = new Edge[0];
+		this.m_removeEdges = new Edge[0];
+		this.m_signature = componentTypes.length < 1 ? null : archetypeList.getClassMap().getClassIndex(componentTypes);
+		boolean shared = false;
+		for (Class<?> componentType : componentTypes) {
+			shared |= archetypeList.isShared(componentType);
 		}
+		this.m_shared = shared;
 	}
 
 	public Entity createEntity(Registry registry, Object... components) {
 		int id = m_allocator.nextID();
-		return m_allocator.register(id, new Entity(id, registry, this, sort(components)));
+		Entity entity = m_allocator.register(id, new Entity(id, registry, this));
+		entity.setHandle(m_allocator.getPool().getHandleTable().acquire(id));
+		m_allocator.bind(id, entity.getHandle());
+		scatter(id, components);
+		added(id);
+		return entity;
+	}
+
+	/**
+	 * Creates a row for the components bound to a new handle, without
+	 * materializing an entity.
+	 */
+	long createHandle(Object[] components) {
+		int id = m_allocator.nextID();
+		long handle = m_allocator.getPool().getHandleTable().acquire(id);
+		m_allocator.bind(id, handle);
+		scatter(id, components);
+		added(id);
+		return handle;
+	}
+
+	/**
+	 * Creates the rows of a batch of handles in runs of contiguous rows, writing
+	 * the components returned by the factory for each position straight into the
+	 * columns. The components at the given positions of each array are stored by
+	 * this archetype; if the batch has sparse components, they are put into their
+	 * sparse sets.
+	 */
+	void createHandles(long[] handles, int[] positions, IntFunction<Object[]> factory, Object[] first, boolean sparse) {
+		var pool = m_allocator.getPool();
+		int[] columns = new int[positions.length];
+		Class<?>[] types = new Class<?>[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			types[i] = first[positions[i]].getClass();
+			columns[i] = indexOf(types[i]);
+		}
+		int count = handles.length;
+		int tick = m_list.getRegistry().changeTick();
+		for (int created = 0; created < count;) {
+			int id = m_allocator.reserve(count - created);
+			int length = m_allocator.runLength(id, count - created);
+			pool.getHandleTable().acquire(id, length, handles, created);
+			m_allocator.bind(id, handles, created, length);
+			var chunk = pool.getChunk(id);
+			int row = pool.getIDFactory().getObjectID(id);
+			chunk.setAddedTicks(row, length, tick);
+			for (int i = 0; i < length; i++, row++) {
+				int index = created + i;
+				Object[] components = index == 0 ? first : factory.apply(index);
+				for (int j = 0; j < columns.length; j++) {
+					Object component = components[positions[j]];
+					if (component.getClass() != types[j]) {
+						throw new IllegalArgumentException("Expected " + types[j].getName() + " at " + positions[j] + ", was " + component.getClass().getName());
+					}
+					chunk.getColumn(columns[j]).set(row, component);
+				}
+				if (sparse) {
+					m_list.putSparse(HandleTable.indexOf(handles[index]), components);
+				}
+			}
+			created += length;
+		}
+	}
+
+	/**
+	 * Creates the rows of a batch of handles from the prefab, in runs of
+	 * contiguous rows, writing a copy of each component of the prefab straight
+	 * into its pre-resolved column.
+	 */
+	@SuppressWarnings("unchecked")
+	void instantiate(long[] handles, Prefab prefab) {
+		var pool = m_allocator.getPool();
+		int[] columns = prefab.columns();
+		boolean sparse = prefab.hasSparse();
+		Class<?>[] types = sparse ? prefab.getComponentTypes() : null;
+		int count = handles.length;
+		int tick = m_list.getRegistry().changeTick();
+		for (int created = 0; created < count;) {
+			int id = m_allocator.reserve(count - created);
+			int length = m_allocator.runLength(id, count - created);
+			pool.getHandleTable().acquire(id, length, handles, created);
+			m_allocator.bind(id, handles, created, length);
+			var chunk = pool.getChunk(id);
+			int row = pool.getIDFactory().getObjectID(id);
+			chunk.setAddedTicks(row, length, tick);
+			for (int i = 0; i < length; i++, row++) {
+				for (int j = 0; j < columns.length; j++) {
+					if (columns[j] >= 0) {
+						chunk.getColumn(columns[j]).set(row, prefab.copy(j));
+					} else {
+						((SparseSet<Object>) m_list.getSparseSet(types[j])).put(HandleTable.indexOf(handles[created + i]), prefab.copy(j));
+					}
+				}
+			}
+			created += length;
+		}
+	}
+
+	/**
+	 * Moves a handle without an entity into a new row of this archetype.
+	 */
+	void insert(long handle, Object[] components) {
+		int id = m_allocator.nextID();
+		m_allocator.bind(id, handle);
+		scatter(id, components);
+		added(id);
+	}
+
+	void destroy(int id, long handle) {
+		m_allocator.freeID(id);
+		m_allocator.getPool().getHandleTable().release(handle);
+	}
+
+	/**
+	 * Returns the entity stored at the row of the id, creating and storing one
+	 * first if the row was created through a handle.
+	 */
+	Entity materialize(int id) {
+		var chunk = m_allocator.getPool().getChunk(id);
+		Entity entity = chunk.get(id);
+		if (entity != null) {
+			return entity;
+		}
+		entity = new Entity(id, m_list.getRegistry(), this);
+		entity.setHandle(chunk.getHandle(m_allocator.getPool().getIDFactory().getObjectID(id)));
+		return chunk.putIfAbsent(id, entity);
 	}
 
 	public boolean destroy(Entity entity) {
 		int id = entity.getID();
 		m_allocator.freeID(id);
+		m_allocator.getPool().getHandleTable().release(entity.getHandle());
 		entity.setID(id | IDFactory.DETACHED_BIT);
 		entity.setArchetype(null);
 		entity.setComponents(null);
@@ -42,54 +178,345 @@ public final class Archetype {
 
 	public Entity attach(Entity entity, Object... components) {
 		entity.setID(m_allocator.nextID());
-		entity = m_allocator.register(entity.getID(), switch (m_componentTypes.length) {
-		case 00 -> entity.setArchetype(this).setComponents(null);
-		case 01 -> entity.setArchetype(this).setComponents(components);
-		default -> entity.setArchetype(this).setComponents(sort(components));
-		});
+		entity = m_allocator.register(entity.getID(), entity.setArchetype(this).setComponents(null));
+		m_allocator.bind(entity.getID(), entity.getHandle());
+		scatter(entity.getID(), components);
+		added(entity.getID());
 		entity.setRegistry(m_list.getRegistry());
 		return entity;
 	}
 
 	public Entity detach(Entity entity) {
-		m_allocator.freeID(entity.getID());
-		entity.setID(entity.getID() | IDFactory.DETACHED_BIT);
+		entity.setComponents(gather(entity.getID()));
+		return evict(entity);
+	}
+
+	/**
+	 * Frees the row of the entity without parking its components, for callers
+	 * that already gathered them to move the entity into another archetype.
+	 */
+	Entity evict(Entity entity) {
+		int id = entity.getID();
+		evict(id);
+		entity.setID(id | IDFactory.DETACHED_BIT);
 		return entity;
 	}
+
+	void evict(int id) {
+		m_allocator.freeID(id);
+	}
+
+	/**
+	 * Destroys every entity of this archetype at once: the handles of each chunk
+	 * are released in one batch and the chunks are dropped from the pool whole,
+	 * instead of freeing the rows one by one.
+	 */
+	void destroyAll() {
+		var handleTable = m_allocator.getPool().getHandleTable();
+		boolean sparse = m_list.hasSparseSets();
+		int[] indices = null;
+		for (var chunk = m_allocator.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+			int size = chunk.size();
+			if (indices == null || indices.length < size) {
+				indices = new int[size];
+			}
+			for (int row = 0; row < size; row++) {
+				Entity entity = chunk.getEntry(row);
+				if (entity != null) {
+					entity.setID(entity.getID() | IDFactory.DETACHED_BIT);
+					entity.setArchetype(null);
+					entity.setComponents(null);
+				}
+				indices[row] = chunk.getHandleIndex(row);
+				if (sparse) {
+					m_list.removeSparse(indices[row]);
+				}
+			}
+			handleTable.release(indices, size);
+		}
+		m_allocator.clear();
+	}
+
+	/**
+	 * Moves every entity of this archetype into the target at once, by handing
+	 * the chunks over to the target with their columns remapped. The entities
+	 * keep their IDs and handles; the columns the target does not store are
+	 * closed.
+	 */
+	void moveAll(Archetype target) {
+		int[] columnMap = columnMap(target);
+		for (var chunk = m_allocator.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+			int size = chunk.size();
+			for (int row = 0; row < size; row++) {
+				Entity entity = chunk.getEntry(row);
+				if (entity != null) {
+					entity.setArchetype(target);
+				}
+			}
+		}
+		m_allocator.transfer(target.m_allocator, columnMap);
+	}
 	
 	public Entity reattach(Entity entity) {
+		Object[] components = entity.getComponents();
 		entity.setID(m_allocator.nextID());
-		m_allocator.register(entity.getID(), entity);
+		m_allocator.register(entity.getID(), entity.setComponents(null));
+		m_allocator.bind(entity.getID(), entity.getHandle());
+		scatter(entity.getID(), components);
+		added(entity.getID());
 		entity.setRegistry(m_list.getRegistry());
 		return entity;
 	}
-	
-	private Object[] sort(Object[] components) {
-		if (components.length == 1) {
-			return components;
+
+	/**
+	 * Returns the cached transition to the archetype with the component type
+	 * added, or null if it was never taken.
+	 */
+	Edge addEdge(Class<?> componentType) {
+		return edge(m_addEdges, componentType);
+	}
+
+	Edge removeEdge(Class<?> componentType) {
+		return edge(m_removeEdges, componentType);
+	}
+
+	Edge cacheAddEdge(Class<?> componentType, Archetype target) {
+		Edge edge = new Edge(componentType, target, columnMap(target));
+		synchronized (this) {
+			m_addEdges = cache(m_addEdges, edge);
 		}
-		
-		int nextIndex;
-		for (int i = 0; i < components.length; i++) {
-			nextIndex = indexOf(components[i].getClass());
-			if (nextIndex != i) {
-				var temp = components[nextIndex];
-				components[nextIndex] = components[i];
-				components[i] = temp;
+		return edge;
+	}
+
+	Edge cacheRemoveEdge(Class<?> componentType, Archetype target) {
+		Edge edge = new Edge(componentType, target, columnMap(target));
+		synchronized (this) {
+			m_removeEdges = cache(m_removeEdges, edge);
+		}
+		return edge;
+	}
+
+	private Edge edge(Edge[] edges, Class<?> componentType) {
+		int typeIndex = m_list.getClassMap().indexOf(componentType);
+		if (typeIndex <= 0 || typeIndex >= edges.length) {
+			return null;
+		}
+		Edge edge = edges[typeIndex];
+		return edge != null && edge.m_componentType == componentType ? edge : null;
+	}
+
+	private Edge[] cache(Edge[] edges, Edge edge) {
+		int typeIndex = m_list.getClassMap().indexOf(edge.m_componentType);
+		if (typeIndex <= 0) {
+			return edges;
+		}
+		Edge[] cached = Arrays.copyOf(edges, Math.max(edges.length, typeIndex + 1));
+		cached[typeIndex] = edge;
+		return cached;
+	}
+
+	/**
+	 * Maps each column of this archetype onto the column of the same type in the
+	 * target, or -1 if the target does not store the type.
+	 */
+	private int[] columnMap(Archetype target) {
+		int[] columns = new int[m_componentTypes.length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = target.length() == 0 ? -1 : target.indexOf(m_componentTypes[i]);
+		}
+		return columns;
+	}
+
+	/**
+	 * Moves the entity along the edge: its shared components are copied column by
+	 * column into a new row of the target, the given components are written into
+	 * it, and the old row is freed.
+	 */
+	Entity move(Edge edge, Entity entity, Object[] components) {
+		Archetype target = edge.m_target;
+		int id = copy(edge, entity.getID(), components);
+		evict(entity);
+		entity.setID(id);
+		target.m_allocator.register(id, entity.setArchetype(target));
+		target.m_allocator.bind(id, entity.getHandle());
+		return entity;
+	}
+
+	void move(Edge edge, int id, long handle, Object[] components) {
+		int newID = copy(edge, id, components);
+		evict(id);
+		edge.m_target.m_allocator.bind(newID, handle);
+	}
+
+	private int copy(Edge edge, int id, Object[] components) {
+		Archetype target = edge.m_target;
+		int newID = target.m_allocator.nextID();
+		var pool = m_allocator.getPool();
+		var chunk = pool.getChunk(id);
+		var targetChunk = pool.getChunk(newID);
+		int row = pool.getIDFactory().getObjectID(id);
+		int newRow = pool.getIDFactory().getObjectID(newID);
+		for (int i = 0; i < edge.m_columns.length; i++) {
+			int column = edge.m_columns[i];
+			if (column >= 0) {
+				chunk.getColumn(i).copy(row, targetChunk.getColumn(column), newRow);
+				targetChunk.setTicks(newRow, column, chunk.getTicks(row, i));
+			}
+		}
+		target.scatter(newID, components);
+		if (components != null) {
+			int tick = m_list.getRegistry().changeTick();
+			for (Object component : components) {
+				targetChunk.setAddedTick(newRow, target.indexOf(component.getClass()), tick);
+			}
+		}
+		return newID;
+	}
+
+	/**
+	 * Overwrites the given components at the row of the id, in place, and stamps
+	 * them as changed.
+	 */
+	void write(int id, Object[] components) {
+		scatter(id, components);
+		for (Object component : components) {
+			changed(id, indexOf(component.getClass()));
+		}
+	}
+
+	/**
+	 * Stamps every component at the row of the id as added.
+	 */
+	private void added(int id) {
+		if (m_componentTypes.length == 0) {
+			return;
+		}
+		var pool = m_allocator.getPool();
+		pool.getChunk(id).setAddedTicks(pool.getIDFactory().getObjectID(id), 1, m_list.getRegistry().changeTick());
+	}
+
+	/**
+	 * Stamps the component at the row of the id and the column of the index as
+	 * changed.
+	 */
+	void changed(int id, int index) {
+		var pool = m_allocator.getPool();
+		pool.getChunk(id).setChangedTick(pool.getIDFactory().getObjectID(id), index, m_list.getRegistry().changeTick());
+	}
+
+	/**
+	 * Returns the change ticks of the components at the row of the id, in column
+	 * order, to be carried over with {@link #carryTicks(int, Archetype, long[])}
+	 * once the row is moved to another archetype.
+	 */
+	long[] ticks(int id) {
+		var pool = m_allocator.getPool();
+		var chunk = pool.getChunk(id);
+		int row = pool.getIDFactory().getObjectID(id);
+		long[] ticks = new long[m_componentTypes.length];
+		for (int i = 0; i < ticks.length; i++) {
+			ticks[i] = chunk.getTicks(row, i);
+		}
+		return ticks;
+	}
+
+	/**
+	 * Restores, at the row of the id, the change ticks the source archetype
+	 * returned for the components both archetypes store.
+	 */
+	void carryTicks(int id, Archetype source, long[] ticks) {
+		if (m_componentTypes.length == 0) {
+			return;
+		}
+		var pool = m_allocator.getPool();
+		var chunk = pool.getChunk(id);
+		int row = pool.getIDFactory().getObjectID(id);
+		Class<?>[] sourceTypes = source.m_componentTypes;
+		for (int i = 0; i < sourceTypes.length; i++) {
+			int column = indexOf(sourceTypes[i]);
+			if (column >= 0) {
+				chunk.setTicks(row, column, ticks[i]);
 			}
 		}
-		nextIndex = indexOf(components[0].getClass());
-		if (nextIndex > 0) {
-			Object temp = components[nextIndex];
-			components[nextIndex] = components[0];
-			components[0] = temp;;
+	}
+
+	/**
+	 * Writes each component into the column of its type, at the row of the id.
+	 */
+	private void scatter(int id, Object[] components) {
+		if (components == null || m_componentTypes.length == 0) {
+			return;
+		}
+		var chunk = m_allocator.getPool().getChunk(id);
+		for (int i = 0; i < components.length; i++) {
+			Object component = components[i];
+			chunk.setValue(id, indexOf(component.getClass()), component);
+		}
+	}
+
+	/**
+	 * Collects the components stored at the row of the id, in column order.
+	 */
+	Object[] gather(int id) {
+		int length = m_componentTypes.length;
+		if (length == 0) {
+			return null;
+		}
+		var chunk = m_allocator.getPool().getChunk(id);
+		Object[] components = new Object[length];
+		for (int i = 0; i < length; i++) {
+			components[i] = chunk.getValue(id, i);
 		}
 		return components;
 	}
 
+	Object get(int id, int index) {
+		return m_allocator.getPool().getChunk(id).getValue(id, index);
+	}
+
+	Object set(int id, int index, Object component) {
+		var chunk = m_allocator.getPool().getChunk(id);
+		Object previous = chunk.getValue(id, index);
+		chunk.setValue(id, index, component);
+		changed(id, index);
+		return previous;
+	}
+
+	/**
+	 * Returns the off-heap address of the component stored at the row of the id,
+	 * or 0 if the column of the component is not flat.
+	 */
+	long address(int id, int index) {
+		var pool = m_allocator.getPool();
+		var column = pool.getChunk(id).getColumn(index);
+		return column instanceof FlatColumn flat ? flat.address(pool.getIDFactory().getObjectID(id)) : 0L;
+	}
+
+	/**
+	 * Passes the address of every row of the flat column of the component type to
+	 * the consumer, chunk by chunk.
+	 */
+	void forEachAddress(Class<?> componentType, LongConsumer consumer) {
+		int index = indexOf(componentType);
+		if (index < 0) {
+			return;
+		}
+		for (var chunk = m_allocator.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+			if (!(chunk.getColumn(index) instanceof FlatColumn column)) {
+				return;
+			}
+			int size = chunk.size();
+			long stride = column.getLayout().stride();
+			long address = column.address(0);
+			for (int row = 0; row < size; row++, address += stride) {
+				consumer.accept(address);
+			}
+		}
+	}
+
 	public int indexOf(Class<?> componentType) {
-		if (m_componentIndices == null) return 0;
-		return m_componentIndices[m_list.getClassMap().indexOf(componentType)] - 1;
+		if (m_signature == null) return 0;
+		return m_signature.rank(m_list.getClassMap().indexOf(componentType));
 	}
 
 	public int length() {
@@ -108,6 +535,43 @@ public final class Archetype {
 		return m_componentTypes;
 	}
 
+	/**
+	 * Returns the signature of the component types of this archetype, or null
+	 * for the archetype without components.
+	 */
+	public ClassIndex getSignature() {
+		return m_signature;
+	}
+
+	/**
+	 * Returns whether this archetype stores shared components, in which case it
+	 * is one partition of its node, holding a single value of each.
+	 */
+	public boolean hasSharedComponents() {
+		return m_shared;
+	}
+
+	/**
+	 * A cached transition from an archetype to the archetype with one component
+	 * type added or removed.
+	 */
+	static final class Edge {
+
+		private final Class<?> m_componentType;
+		private final Archetype m_target;
+		private final int[] m_columns;
+
+		private Edge(Class<?> componentType, Archetype target, int[] columns) {
+			this.m_componentType = componentType;
+			this.m_target = target;
+			this.m_columns = columns;
+		}
+
+		Archetype getTarget() {
+			return m_target;
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -1,8 +1,12 @@
 package com.starworks.inferno;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -11,113 +15,383 @@ import java.util.stream.Collectors;
 
 import com.starworks.inferno.collections.ClassMap;
 import com.starworks.inferno.collections.ClassMap.ClassIndex;
+import com.starworks.inferno.collections.Column;
+import com.starworks.inferno.collections.FlatColumn;
+import com.starworks.inferno.collections.FlatLayout;
+import com.starworks.inferno.collections.MappedStorage;
+import com.starworks.inferno.collections.ObjectColumn;
+import com.starworks.inferno.collections.SharedColumn;
+import com.starworks.inferno.collections.SparseBitSet;
+import com.starworks.inferno.collections.SparseSet;
+import com.starworks.inferno.collections.TagColumn;
 
 public final class ArchetypeList implements Closeable {
 
+	private static final Class<?>[] NO_TYPES = new Class<?>[0];
+	private static final SparseBitSet EMPTY_SET = new SparseBitSet();
+
 	private final Registry m_registry;
 	private final ClassMap m_classMap;
 	private final ConcurrentMap<ClassIndex, Node> m_nodes;
+	private final Map<Class<?>, FlatLayout<?>> m_flatLayouts;
+	private final Map<Class<?>, Column.Factory> m_tagFactories;
+	private final Map<Class<?>, SparseSet<?>> m_sparseSets;
+	private final Set<Class<?>> m_sharedTypes;
+	private final List<Archetype> m_archetypes;
+	private final List<Query> m_queries;
+	private final Map<QueryKey, Query> m_queryCache;
+	private SparseBitSet[] m_archetypeSets;
 	private final Archetype m_baseArchetype;
 
 	public ArchetypeList(Registry registry) {
 		this.m_registry = registry;
 		this.m_classMap = new ClassMap();
 		this.m_nodes = new ConcurrentHashMap<ClassIndex, Node>();
+		this.m_flatLayouts = new ConcurrentHashMap<Class<?>, FlatLayout<?>>();
+		this.m_tagFactories = new ConcurrentHashMap<Class<?>, Column.Factory>();
+		this.m_sparseSets = new ConcurrentHashMap<Class<?>, SparseSet<?>>();
+		this.m_sharedTypes = ConcurrentHashMap.newKeySet();
+		this.m_archetypes = new ArrayList<Archetype>();
+		this.m_queries = new ArrayList<Query>();
+		this.m_queryCache = new ConcurrentHashMap<QueryKey, Query>();
+		this.m_archetypeSets = new SparseBitSet[16];
 		this.m_baseArchetype = new Archetype(this, registry.getEntityPool().newAllocator());
 	}
 
 	public Archetype getOrCreate(Object[] components) {
-		int componentsLength = components == null ? 0 : components.length;
-		Node node;
-		switch (componentsLength) {
-		case 0:
+		if (components == null || components.length == 0) {
 			return m_baseArchetype;
-		case 1:
-			Class<?> componentType = components[0].getClass();
-			node = m_nodes.get(m_classMap.getClassIndex(m_classMap.indexOf(componentType)));
-			if (node != null) {
-				node.link(m_classMap.getClassIndex(m_classMap.indexOf(componentType)), node);
-				break;
-			}
-			var key = m_classMap.getClassIndex(m_classMap.indexOfOrAdd(componentType));
-			node = m_nodes.get(key);
-			if (node == null) {
-				node = getOrCreateNode(key, componentType);
-			}
-			break;
-		default:
-			var classIndex = m_classMap.getClassIndex(components);
-			node = m_nodes.get(classIndex);
-			if (node == null) {
-				Class<?>[] componentTypes = new Class<?>[components.length];
-				for (int i = 0; i < components.length; i++) {
-					componentTypes[i] = components[i].getClass();
-				}
-				node = getOrCreateNode(classIndex, componentTypes);
+		}
+		Node node = m_nodes.get(m_classMap.getTransientClassIndex(components));
+		if (node == null) {
+			Class<?>[] componentTypes = new Class<?>[components.length];
+			for (int i = 0; i < components.length; i++) {
+				componentTypes[i] = components[i].getClass();
 			}
-			break;
+			node = getOrCreateNode(m_classMap.getClassIndex(componentTypes), componentTypes);
 		}
+		return node.m_sharedColumns == null ? node.getArchetype() : node.partition(components);
+	}
 
+	public Archetype getOrCreate(Class<?>[] componentTypes) {
+		if (componentTypes.length == 0) {
+			return m_baseArchetype;
+		}
+		var classIndex = m_classMap.getClassIndex(componentTypes);
+		Node node = m_nodes.get(classIndex);
+		if (node == null) {
+			node = getOrCreateNode(classIndex, componentTypes);
+		}
 		return node.getArchetype();
 	}
 
+	/**
+	 * Returns the nodes of the archetypes storing all of the given types, or null
+	 * if none does.
+	 */
 	public Map<ClassIndex, Node> find(Class<?>... componentTypes) {
-		switch (componentTypes.length) {
-		case 0:
+		if (componentTypes.length == 0) {
 			return null;
-		case 1:
-			Node node = m_nodes.get(m_classMap.getClassIndex(m_classMap.indexOf(componentTypes[0])));
-			return node == null ? null : node.getLinkedNodes();
-		default:
-			Map<ClassIndex, Node> currentArchetypes = null;
-			int size = componentTypes.length;
-			for (int i = 0; i < size; ++i) {
-				node = m_nodes.get(m_classMap.getClassIndex(m_classMap.indexOf(componentTypes[i])));
-				if (node == null) continue;
-				currentArchetypes = currentArchetypes == null ? node.getLinkedNodes() : intersect(currentArchetypes, node.m_linkedNodes);
-			}
-			return currentArchetypes;
-		}
-	}
-
-	void include(Map<ClassIndex, Node> nodeMap, Class<?>... componentTypes) {
-		if (componentTypes.length == 0) return;
-		for (var componentType : componentTypes) {
-			Node node = m_nodes.get(m_classMap.getClassIndex(m_classMap.indexOf(componentType)));
-			if (node == null) continue;
-			intersect(nodeMap, node.m_linkedNodes);
-		}
-	}
-
-	void exclude(Map<ClassIndex, Node> nodeMap, Class<?>... componentTypes) {
-		if (componentTypes.length == 0) return;
-		for (var componentType : componentTypes) {
-			var classIndex = m_classMap.getClassIndex(m_classMap.indexOf(componentType));
-			nodeMap.remove(classIndex);
-			Node node = m_nodes.get(classIndex);
-			if (node != null) {
-				for (var linkedNodeKey : node.m_linkedNodes.keySet()) {
-					nodeMap.remove(linkedNodeKey);
+		}
+		Map<ClassIndex, Node> nodes = new ConcurrentHashMap<ClassIndex, Node>();
+		synchronized (m_archetypes) {
+			matchAll(componentTypes).forEach(id -> {
+				Archetype archetype = m_archetypes.get(id);
+				nodes.computeIfAbsent(archetype.getSignature(), m_nodes::get);
+			});
+		}
+		return nodes.isEmpty() ? null : nodes;
+	}
+
+	public Query query(Class<?>[] allTypes, Class<?>[] noneTypes) {
+		return query(allTypes, noneTypes, NO_TYPES);
+	}
+
+	/**
+	 * Returns the query of the archetypes storing all of the first types, none
+	 * of the second and, unless the third are empty, any of the third, creating
+	 * it first if needed. Queries are cached by their types and kept up to date
+	 * as archetypes are created.
+	 */
+	public Query query(Class<?>[] allTypes, Class<?>[] noneTypes, Class<?>[] anyTypes) {
+		QueryKey key = new QueryKey(m_classMap.getClassIndex(allTypes), noneTypes.length == 0 ? null : m_classMap.getClassIndex(noneTypes), anyTypes.length == 0 ? null : m_classMap.getClassIndex(anyTypes));
+		Query query = m_queryCache.get(key);
+		if (query != null) {
+			return query;
+		}
+		synchronized (m_archetypes) {
+			return m_queryCache.computeIfAbsent(key, k -> {
+				Query created = new Query(k.all(), k.none(), k.any());
+				if (allTypes.length == 0) {
+					m_archetypes.forEach(created::offer);
+					m_queries.add(created);
+					return created;
+				}
+				SparseBitSet matching = matchAll(allTypes);
+				if (noneTypes.length > 0) {
+					matching = matching.andNot(matchAny(noneTypes));
+				}
+				if (anyTypes.length > 0) {
+					matching = matching.and(matchAny(anyTypes));
+				}
+				Archetype[] archetypes = new Archetype[matching.cardinality()];
+				int[] count = { 0 };
+				matching.forEach(id -> archetypes[count[0]++] = m_archetypes.get(id));
+				created.seed(archetypes);
+				m_queries.add(created);
+				return created;
+			});
+		}
+	}
+
+	/**
+	 * Returns the ids of the archetypes storing all of the types, at least one, by
+	 * intersecting the archetype sets of the types. Called while holding the
+	 * archetypes.
+	 */
+	private SparseBitSet matchAll(Class<?>[] componentTypes) {
+		SparseBitSet matching = archetypeSet(componentTypes[0]);
+		for (int i = 1; i < componentTypes.length && !matching.isEmpty(); i++) {
+			matching = matching.and(archetypeSet(componentTypes[i]));
+		}
+		return matching;
+	}
+
+	private SparseBitSet matchAny(Class<?>[] componentTypes) {
+		SparseBitSet matching = EMPTY_SET;
+		for (Class<?> componentType : componentTypes) {
+			matching = matching.or(archetypeSet(componentType));
+		}
+		return matching;
+	}
+
+	private SparseBitSet archetypeSet(Class<?> componentType) {
+		int index = m_classMap.indexOf(componentType);
+		return index < 0 || index >= m_archetypeSets.length || m_archetypeSets[index] == null ? EMPTY_SET : m_archetypeSets[index];
+	}
+
+	/**
+	 * Records a new archetype, adds its id to the archetype set of each of its
+	 * types and appends it to the queries it matches.
+	 */
+	private Archetype register(Archetype archetype) {
+		synchronized (m_archetypes) {
+			int id = m_archetypes.size();
+			m_archetypes.add(archetype);
+			for (Class<?> componentType : archetype.getComponentTypes()) {
+				int index = m_classMap.indexOf(componentType);
+				if (index >= m_archetypeSets.length) {
+					m_archetypeSets = Arrays.copyOf(m_archetypeSets, Math.max(index + 1, m_archetypeSets.length << 1));
+				}
+				if (m_archetypeSets[index] == null) {
+					m_archetypeSets[index] = new SparseBitSet();
 				}
+				m_archetypeSets[index].add(id);
+			}
+			for (Query query : m_queries) {
+				query.offer(archetype);
+			}
+		}
+		return archetype;
+	}
+
+	<T> FlatLayout<T> registerFlat(Class<T> componentType) {
+		@SuppressWarnings("unchecked")
+		FlatLayout<T> layout = (FlatLayout<T>) m_flatLayouts.get(componentType);
+		if (layout != null) {
+			return layout;
+		}
+		if (m_nodes.containsKey(m_classMap.getClassIndex(m_classMap.indexOf(componentType)))) {
+			throw new IllegalStateException(componentType.getName() + " is already stored by existing archetypes");
+		}
+		if (m_sparseSets.containsKey(componentType)) {
+			throw new IllegalStateException(componentType.getName() + " is stored in a sparse set");
+		}
+		if (m_sharedTypes.contains(componentType)) {
+			throw new IllegalStateException(componentType.getName() + " is shared");
+		}
+		layout = FlatLayout.of(componentType);
+		m_flatLayouts.putIfAbsent(componentType, layout);
+		return layout;
+	}
+
+	FlatLayout<?> getFlatLayout(Class<?> componentType) {
+		return m_flatLayouts.get(componentType);
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> SparseSet<T> registerSparse(Class<T> componentType) {
+		SparseSet<T> sparseSet = (SparseSet<T>) m_sparseSets.get(componentType);
+		if (sparseSet != null) {
+			return sparseSet;
+		}
+		if (m_nodes.containsKey(m_classMap.getClassIndex(m_classMap.indexOf(componentType)))) {
+			throw new IllegalStateException(componentType.getName() + " is already stored by existing archetypes");
+		}
+		if (m_flatLayouts.containsKey(componentType)) {
+			throw new IllegalStateException(componentType.getName() + " is stored flat");
+		}
+		if (m_sharedTypes.contains(componentType)) {
+			throw new IllegalStateException(componentType.getName() + " is shared");
+		}
+		return (SparseSet<T>) m_sparseSets.computeIfAbsent(componentType, type -> new SparseSet<Object>());
+	}
+
+	/**
+	 * Marks the component type as shared: the archetypes storing it are
+	 * partitioned by its value, and each chunk stores the value once.
+	 */
+	void registerShared(Class<?> componentType) {
+		if (m_sharedTypes.contains(componentType)) {
+			return;
+		}
+		if (m_nodes.containsKey(m_classMap.getClassIndex(m_classMap.indexOf(componentType)))) {
+			throw new IllegalStateException(componentType.getName() + " is already stored by existing archetypes");
+		}
+		if (m_flatLayouts.containsKey(componentType)) {
+			throw new IllegalStateException(componentType.getName() + " is stored flat");
+		}
+		if (m_sparseSets.containsKey(componentType)) {
+			throw new IllegalStateException(componentType.getName() + " is stored in a sparse set");
+		}
+		m_sharedTypes.add(componentType);
+	}
+
+	boolean isShared(Class<?> componentType) {
+		return !m_sharedTypes.isEmpty() && m_sharedTypes.contains(componentType);
+	}
+
+	/**
+	 * Returns whether the type is stored in a tag column, whose rows all read the
+	 * same canonical instance rather than the one added.
+	 */
+	boolean isTag(Class<?> componentType) {
+		return m_tagFactories.containsKey(componentType);
+	}
+
+	SparseSet<?> getSparseSet(Class<?> componentType) {
+		return m_sparseSets.isEmpty() ? null : m_sparseSets.get(componentType);
+	}
+
+	boolean hasSparseSets() {
+		return !m_sparseSets.isEmpty();
+	}
+
+	/**
+	 * Returns the given types that are not stored in sparse sets.
+	 */
+	Class<?>[] withoutSparse(Class<?>[] componentTypes) {
+		if (m_sparseSets.isEmpty()) {
+			return componentTypes;
+		}
+		return Arrays.stream(componentTypes).filter(type -> !m_sparseSets.containsKey(type)).toArray(Class<?>[]::new);
+	}
+
+	/**
+	 * Returns the components that are not stored in a sparse set, or the array
+	 * itself if none is.
+	 */
+	Object[] withoutSparse(Object[] components) {
+		if (components == null || m_sparseSets.isEmpty()) {
+			return components;
+		}
+		int count = 0;
+		for (Object component : components) {
+			if (m_sparseSets.containsKey(component.getClass())) {
+				count++;
+			}
+		}
+		if (count == 0) {
+			return components;
+		}
+		Object[] remaining = new Object[components.length - count];
+		int i = 0;
+		for (Object component : components) {
+			if (!m_sparseSets.containsKey(component.getClass())) {
+				remaining[i++] = component;
 			}
 		}
+		return remaining;
+	}
+
+	@SuppressWarnings("unchecked")
+	void putSparse(int key, Object[] components) {
+		if (components == null || m_sparseSets.isEmpty()) {
+			return;
+		}
+		for (Object component : components) {
+			var sparseSet = (SparseSet<Object>) m_sparseSets.get(component.getClass());
+			if (sparseSet != null) {
+				sparseSet.put(key, component);
+			}
+		}
+	}
+
+	void removeSparse(int key) {
+		if (m_sparseSets.isEmpty()) {
+			return;
+		}
+		for (SparseSet<?> sparseSet : m_sparseSets.values()) {
+			sparseSet.remove(key);
+		}
 	}
 
-	private Map<ClassIndex, Node> intersect(Map<ClassIndex, Node> subject, Map<ClassIndex, Node> other) {
-		Set<ClassIndex> indexKeySet = subject.keySet();
-		Iterator<ClassIndex> iterator = indexKeySet.iterator();
-		while (iterator.hasNext()) {
-			if (!other.containsKey(iterator.next())) {
-				iterator.remove();
+	/**
+	 * Returns the factories of the columns of the component types. The columns
+	 * of shared types hold the given shared values, indexed like the types.
+	 */
+	private Column.Factory[] columnFactories(Class<?>[] componentTypes, Object[] sharedValues) {
+		MappedStorage mappedStorage = m_registry.getMappedStorage();
+		Column.Factory[] factories = new Column.Factory[componentTypes.length];
+		for (int i = 0; i < componentTypes.length; i++) {
+			Class<?> componentType = componentTypes[i];
+			if (isShared(componentType)) {
+				factories[i] = SharedColumn.factory(sharedValues == null ? null : sharedValues[i]);
+				continue;
+			}
+			Column.Factory tagFactory = tagFactory(componentType);
+			if (tagFactory != null) {
+				factories[i] = tagFactory;
+				continue;
+			}
+			FlatLayout<?> layout = m_flatLayouts.get(componentType);
+			if (layout == null && mappedStorage != null && FlatLayout.isFlat(componentType)) {
+				layout = m_flatLayouts.computeIfAbsent(componentType, FlatLayout::of);
+			}
+			if (layout == null) {
+				factories[i] = ObjectColumn.FACTORY;
+			} else {
+				factories[i] = mappedStorage == null ? FlatColumn.factory(layout) : mappedStorage.factory(layout);
 			}
 		}
-		return subject;
+		return factories;
 	}
 
+	/**
+	 * Returns the factory of the single column shared by every archetype storing
+	 * the tag type, or null if the type has instance fields.
+	 */
+	private Column.Factory tagFactory(Class<?> componentType) {
+		Column.Factory factory = m_tagFactories.get(componentType);
+		if (factory == null && TagColumn.isTag(componentType)) {
+			factory = m_tagFactories.computeIfAbsent(componentType, TagColumn::factory);
+		}
+		return factory;
+	}
+
+	/**
+	 * Creates the node of the signature, with its component types sorted by class
+	 * index so that the column of a type is its rank in the signature, and links
+	 * it into the node of each of its types.
+	 */
 	private Node getOrCreateNode(ClassIndex key, Class<?>... componentTypes) {
-		Node node = m_nodes.computeIfAbsent(key, k -> new Node(componentTypes));
+		Node node = m_nodes.computeIfAbsent(key, k -> {
+			Class<?>[] sortedTypes = componentTypes.clone();
+			Arrays.sort(sortedTypes, Comparator.comparingInt(m_classMap::indexOf));
+			return new Node(sortedTypes);
+		});
 		int size = componentTypes.length;
-		if (size <= 1) {
+		if (size == 1) {
 			node.link(key, node);
 			return node;
 		}
@@ -125,11 +399,15 @@ public final class ArchetypeList implements Closeable {
 			Class<?> componentType = componentTypes[i];
 			var typeKey = m_classMap.getClassIndex(m_classMap.indexOf(componentType));
 			Node singleTypeNode = m_nodes.computeIfAbsent(typeKey, k -> new Node(componentType));
+			singleTypeNode.link(typeKey, singleTypeNode);
 			singleTypeNode.link(key, node);
 		}
 		return node;
 	}
 
+	private record QueryKey(ClassIndex all, ClassIndex none, ClassIndex any) {
+	}
+
 	@Override
 	public void close() {
 		m_nodes.clear();
@@ -174,10 +452,62 @@ public final class ArchetypeList implements Closeable {
 
 		private final Map<ClassIndex, Node> m_linkedNodes;
 		private Archetype m_archetype;
+		private final int[] m_sharedColumns;
+		private final Map<List<Object>, Archetype> m_partitions;
+		private volatile Archetype[] m_archetypes;
 
 		private Node(Class<?>... componentTypes) {
 			this.m_linkedNodes = new ConcurrentHashMap<ClassIndex, Node>();
-			this.m_archetype = componentTypes.length == 0 ? null : new Archetype(ArchetypeList.this, ArchetypeList.this.m_registry.getEntityPool().newAllocator(), componentTypes);
+			this.m_archetype = componentTypes.length == 0 ? null : register(new Archetype(ArchetypeList.this, ArchetypeList.this.m_registry.getEntityPool().newAllocator(columnFactories(componentTypes, null)), componentTypes));
+			this.m_sharedColumns = sharedColumns(componentTypes);
+			this.m_partitions = m_sharedColumns == null ? null : new ConcurrentHashMap<List<Object>, Archetype>();
+			this.m_archetypes = m_archetype == null ? new Archetype[0] : new Archetype[] { m_archetype };
+		}
+
+		private int[] sharedColumns(Class<?>[] componentTypes) {
+			int[] columns = null;
+			for (int i = 0; i < componentTypes.length; i++) {
+				if (isShared(componentTypes[i])) {
+					columns = columns == null ? new int[1] : Arrays.copyOf(columns, columns.length + 1);
+					columns[columns.length - 1] = i;
+				}
+			}
+			return columns;
+		}
+
+		/**
+		 * Returns the archetype of the partition of this node holding the shared
+		 * values of the components, creating it first if needed. Entities are only
+		 * ever stored in partitions when the node has shared types.
+		 */
+		private Archetype partition(Object[] components) {
+			Object[] values = new Object[m_sharedColumns.length];
+			for (Object component : components) {
+				int column = m_archetype.indexOf(component.getClass());
+				int slot = Arrays.binarySearch(m_sharedColumns, column);
+				if (slot >= 0) {
+					values[slot] = component;
+				}
+			}
+			List<Object> key = List.of(values);
+			Archetype partition = m_partitions.get(key);
+			if (partition != null) {
+				return partition;
+			}
+			return m_partitions.computeIfAbsent(key, k -> {
+				Class<?>[] componentTypes = m_archetype.getComponentTypes();
+				Object[] sharedValues = new Object[componentTypes.length];
+				for (int i = 0; i < m_sharedColumns.length; i++) {
+					sharedValues[m_sharedColumns[i]] = values[i];
+				}
+				Archetype archetype = register(new Archetype(ArchetypeList.this, m_registry.getEntityPool().newAllocator(columnFactories(componentTypes, sharedValues)), componentTypes));
+				synchronized (this) {
+					Archetype[] archetypes = Arrays.copyOf(m_archetypes, m_archetypes.length + 1);
+					archetypes[archetypes.length - 1] = archetype;
+					m_archetypes = archetypes;
+				}
+				return archetype;
+			});
 		}
 
 		public void link(ClassIndex key, Node node) {
@@ -192,6 +522,14 @@ public final class ArchetypeList implements Closeable {
 			return m_archetype;
 		}
 
+		/**
+		 * Returns the archetype of this node followed by its partitions, if it has
+		 * shared types. The returned array must not be modified.
+		 */
+		Archetype[] getArchetypes() {
+			return m_archetypes;
+		}
+
 		@Override
 		public String toString() {
 			Set<Node> visitedNodes = new HashSet<Node>();
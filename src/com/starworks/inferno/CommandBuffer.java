@@ -0,0 +1,394 @@
+package com.starworks.inferno;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.starworks.inferno.collections.ChunkedPool.IDFactory;
+import com.starworks.inferno.collections.HandleTable;
+import com.starworks.inferno.collections.SparseSet;
+
+/**
+ * Records structural changes to be applied later, at a sync point, instead of
+ * while the chunks they touch are being iterated.
+ *
+ * <p>
+ * Each thread records into a segment of its own, so parallel systems can share
+ * one buffer without contending on it. {@link #playback()} applies the
+ * recorded changes and must not run concurrently with recording. The changes
+ * recorded for the same entity are collapsed first, so that an entity is moved
+ * at most once, straight into its final archetype; the moves are then grouped
+ * by target archetype and, within a group, evicted from the highest row down
+ * so that most evictions free the last row of a chunk instead of swapping
+ * another row into the hole. Commands of one thread keep their order; the segments of
+ * different threads are played in the order the threads first recorded.
+ */
+public final class CommandBuffer {
+
+	private static final int CREATE = 0;
+	private static final int ADD = 1;
+	private static final int REMOVE = 2;
+	private static final int DESTROY = 3;
+
+	private static final Object[] EMPTY = new Object[0];
+	private static final Class<?>[] EMPTY_TYPES = new Class<?>[0];
+
+	private final Registry m_registry;
+	private final ThreadLocal<List<Command>> m_segment;
+	private final ConcurrentLinkedQueue<List<Command>> m_segments;
+
+	protected CommandBuffer(Registry registry) {
+		this.m_registry = registry;
+		this.m_segments = new ConcurrentLinkedQueue<List<Command>>();
+		this.m_segment = ThreadLocal.withInitial(() -> {
+			List<Command> segment = new ArrayList<Command>();
+			m_segments.add(segment);
+			return segment;
+		});
+	}
+
+	public CommandBuffer create(Object... components) {
+		return record(CREATE, HandleTable.NULL_HANDLE, components, null);
+	}
+
+	public CommandBuffer add(Entity entity, Object... components) {
+		return add(entity.getHandle(), components);
+	}
+
+	public CommandBuffer add(long handle, Object... components) {
+		return record(ADD, handle, components, null);
+	}
+
+	public CommandBuffer remove(Entity entity, Class<?>... componentTypes) {
+		return remove(entity.getHandle(), componentTypes);
+	}
+
+	public CommandBuffer remove(long handle, Class<?>... componentTypes) {
+		return record(REMOVE, handle, null, componentTypes);
+	}
+
+	public CommandBuffer destroy(Entity entity) {
+		return destroy(entity.getHandle());
+	}
+
+	public CommandBuffer destroy(long handle) {
+		return record(DESTROY, handle, null, null);
+	}
+
+	private CommandBuffer record(int op, long handle, Object[] components, Class<?>[] componentTypes) {
+		m_segment.get().add(new Command(op, handle, components, componentTypes));
+		return this;
+	}
+
+	public boolean isEmpty() {
+		for (List<Command> segment : m_segments) {
+			if (!segment.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Applies and discards the recorded commands: destroyed entities are
+	 * destroyed first, then every other changed entity is moved once into its
+	 * final archetype, archetype by archetype, and the new entities are created
+	 * last. Commands for handles that are stale or disabled by then are dropped.
+	 */
+	public void playback() {
+		HandleTable handleTable = m_registry.getEntityPool().getHandleTable();
+		Change[] slots = new Change[handleTable.size()];
+		Map<Long, Change> overflow = null;
+		List<Change> changes = new ArrayList<Change>();
+		List<Object[]> creations = new ArrayList<Object[]>();
+		for (List<Command> segment : m_segments) {
+			for (Command command : segment) {
+				if (command.m_op == CREATE) {
+					creations.add(command.m_components);
+					continue;
+				}
+				long handle = command.m_handle;
+				int index = HandleTable.indexOf(handle);
+				Change change = index >= 0 && index < slots.length ? slots[index] : null;
+				if (change == null && index >= 0 && index < slots.length) {
+					change = slots[index] = new Change(handle);
+					changes.add(change);
+				} else if (change == null || change.m_handle != handle) {
+					if (overflow == null) {
+						overflow = new HashMap<Long, Change>();
+					}
+					change = overflow.get(handle);
+					if (change == null) {
+						overflow.put(handle, change = new Change(handle));
+						changes.add(change);
+					}
+				}
+				change.record(command);
+			}
+			segment.clear();
+		}
+
+		Map<Archetype, List<Change>> groups = new IdentityHashMap<Archetype, List<Change>>();
+		for (Change change : changes) {
+			if (change.m_destroyed) {
+				m_registry.destroy(change.m_handle);
+			} else if (change.resolve()) {
+				groups.computeIfAbsent(change.m_target, target -> new ArrayList<Change>()).add(change);
+			}
+		}
+		for (List<Change> group : groups.values()) {
+			group.sort(Comparator.comparingInt((Change change) -> change.m_id).reversed());
+			for (Change change : group) {
+				change.apply();
+			}
+		}
+		for (List<Change> group : groups.values()) {
+			for (Change change : group) {
+				change.emit();
+			}
+		}
+
+		Map<Archetype, List<Object[]>> creationGroups = new IdentityHashMap<Archetype, List<Object[]>>();
+		ArchetypeList archetypeList = m_registry.getArchetypeList();
+		for (Object[] components : creations) {
+			Object[] archetypeComponents = archetypeList.withoutSparse(components);
+			Archetype archetype = archetypeList.getOrCreate(archetypeComponents.length == 0 ? null : archetypeComponents);
+			creationGroups.computeIfAbsent(archetype, a -> new ArrayList<Object[]>()).add(components);
+		}
+		for (List<Object[]> group : creationGroups.values()) {
+			for (Object[] components : group) {
+				m_registry.createHandle(components);
+			}
+		}
+	}
+
+	/**
+	 * Discards the recorded commands without applying them.
+	 */
+	public void clear() {
+		for (List<Command> segment : m_segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		int size = 0;
+		for (List<Command> segment : m_segments) {
+			size += segment.size();
+		}
+		return "CommandBuffer[segments=" + m_segments.size() + ", commands=" + size + "]";
+	}
+
+	private static final class Command {
+
+		private final int m_op;
+		private final long m_handle;
+		private final Object[] m_components;
+		private final Class<?>[] m_componentTypes;
+
+		private Command(int op, long handle, Object[] components, Class<?>[] componentTypes) {
+			this.m_op = op;
+			this.m_handle = handle;
+			this.m_components = components;
+			this.m_componentTypes = componentTypes;
+		}
+	}
+
+	/**
+	 * The net effect of the commands recorded for one entity: the components to
+	 * add, the types to remove, or its destruction. An entity rarely changes more
+	 * than a few types at once, so both are kept in small arrays.
+	 */
+	private final class Change {
+
+		private final long m_handle;
+		private Object[] m_added;
+		private int m_addedCount;
+		private Class<?>[] m_removed;
+		private Object[] m_removedComponents;
+		private int m_removedCount;
+		private boolean m_destroyed;
+		private Archetype m_source;
+		private Archetype m_target;
+		private int m_id;
+		private Object[] m_components;
+
+		private Change(long handle) {
+			this.m_handle = handle;
+			this.m_added = EMPTY;
+			this.m_addedCount = 0;
+			this.m_removed = EMPTY_TYPES;
+			this.m_removedCount = 0;
+			this.m_destroyed = false;
+		}
+
+		private void record(Command command) {
+			if (m_destroyed) {
+				return;
+			}
+			switch (command.m_op) {
+			case ADD:
+				for (Object component : command.m_components) {
+					unremove(component.getClass());
+					int index = addedIndexOf(component.getClass());
+					if (index < 0) {
+						if (m_addedCount == m_added.length) {
+							m_added = Arrays.copyOf(m_added, Math.max(4, m_addedCount << 1));
+						}
+						index = m_addedCount++;
+					}
+					m_added[index] = component;
+				}
+				break;
+			case REMOVE:
+				for (Class<?> componentType : command.m_componentTypes) {
+					int index = addedIndexOf(componentType);
+					if (index >= 0) {
+						System.arraycopy(m_added, index + 1, m_added, index, --m_addedCount - index);
+						m_added[m_addedCount] = null;
+					}
+					if (removedIndexOf(componentType) < 0) {
+						if (m_removedCount == m_removed.length) {
+							m_removed = Arrays.copyOf(m_removed, Math.max(4, m_removedCount << 1));
+						}
+						m_removed[m_removedCount++] = componentType;
+					}
+				}
+				break;
+			case DESTROY:
+				m_destroyed = true;
+				m_added = EMPTY;
+				m_addedCount = 0;
+				m_removedCount = 0;
+				break;
+			}
+		}
+
+		private int addedIndexOf(Class<?> componentType) {
+			for (int i = 0; i < m_addedCount; i++) {
+				if (m_added[i].getClass() == componentType) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private int removedIndexOf(Class<?> componentType) {
+			for (int i = 0; i < m_removedCount; i++) {
+				if (m_removed[i] == componentType) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private void unremove(Class<?> componentType) {
+			int index = removedIndexOf(componentType);
+			if (index >= 0) {
+				System.arraycopy(m_removed, index + 1, m_removed, index, --m_removedCount - index);
+			}
+		}
+
+		/**
+		 * Locates the entity and computes the components of its final archetype.
+		 */
+		private boolean resolve() {
+			int id = m_registry.getEntityPool().getHandleTable().locate(m_handle);
+			if ((id & IDFactory.DETACHED_BIT) != 0) {
+				return false;
+			}
+			ArchetypeList archetypeList = m_registry.getArchetypeList();
+			m_source = m_registry.archetypeOf(id);
+			m_id = id;
+			m_removedComponents = m_removedCount == 0 ? EMPTY : new Object[m_removedCount];
+			Object[] current = m_source.gather(id);
+			int currentLength = current == null ? 0 : current.length;
+			Object[] components = new Object[currentLength + m_addedCount];
+			int size = 0;
+			for (int i = 0; i < currentLength; i++) {
+				Class<?> componentType = current[i].getClass();
+				int removedIndex = removedIndexOf(componentType);
+				if (removedIndex >= 0) {
+					m_removedComponents[removedIndex] = current[i];
+				} else if (addedIndexOf(componentType) < 0) {
+					components[size++] = current[i];
+				}
+			}
+			for (int i = 0; i < m_addedCount; i++) {
+				if (archetypeList.getSparseSet(m_added[i].getClass()) == null) {
+					components[size++] = m_added[i];
+				}
+			}
+			m_components = size == components.length ? components : Arrays.copyOf(components, size);
+			m_target = archetypeList.getOrCreate(size == 0 ? null : m_components);
+			return true;
+		}
+
+		/**
+		 * Moves the entity into its target archetype. Its ID is located again, as
+		 * the swap-removal of other rows of its chunk may have changed it.
+		 */
+		private void apply() {
+			m_id = m_registry.getEntityPool().getHandleTable().locate(m_handle);
+			ArchetypeList archetypeList = m_registry.getArchetypeList();
+			if (m_addedCount < m_added.length) {
+				m_added = Arrays.copyOf(m_added, m_addedCount);
+			}
+			if (archetypeList.hasSparseSets()) {
+				int key = HandleTable.indexOf(m_handle);
+				for (int i = 0; i < m_removedCount; i++) {
+					SparseSet<?> sparseSet = archetypeList.getSparseSet(m_removed[i]);
+					if (sparseSet != null) {
+						m_removedComponents[i] = sparseSet.remove(key);
+					}
+				}
+				archetypeList.putSparse(key, m_added);
+			}
+			if (m_target == m_source) {
+				if (m_addedCount > 0) {
+					m_source.write(m_id, archetypeList.withoutSparse(m_added));
+				}
+				return;
+			}
+			long[] ticks = m_source.ticks(m_id);
+			Entity entity = m_registry.getEntityPool().get(m_id);
+			if (entity != null) {
+				m_source.evict(entity);
+				m_target.attach(entity, m_components);
+			} else {
+				m_source.evict(m_id);
+				m_target.insert(m_handle, m_components);
+			}
+			m_id = m_registry.getEntityPool().getHandleTable().locate(m_handle);
+			m_target.carryTicks(m_id, m_source, ticks);
+			for (int i = 0; i < m_addedCount; i++) {
+				Class<?> addedType = m_added[i].getClass();
+				if (m_source.length() > 0 && m_source.indexOf(addedType) >= 0) {
+					m_target.changed(m_id, m_target.indexOf(addedType));
+				}
+			}
+		}
+
+		private void emit() {
+			EventSink eventSink = m_registry.eventSink();
+			Entity entity = null;
+			for (int i = 0; i < m_removedCount; i++) {
+				Object removed = m_removedComponents[i];
+				if (removed == null || !eventSink.isConnected(EventSink.ListenerType.ON_COMPONENT_REMOVE, m_removed[i])) {
+					continue;
+				}
+				if (entity == null) {
+					entity = m_registry.resolve(m_handle);
+				}
+				eventSink.emit(EventSink.ListenerType.ON_COMPONENT_REMOVE, m_removed[i], entity, removed);
+			}
+			m_registry.emitAdded(m_handle, m_added);
+		}
+	}
+}
@@ -2,19 +2,21 @@ package com.starworks.inferno;
 
 import com.starworks.inferno.collections.ChunkedPool.IDFactory;
 import com.starworks.inferno.collections.ChunkedPool.Poolable;
+import com.starworks.inferno.collections.HandleTable;
+import com.starworks.inferno.collections.SparseSet;
 
 public final class Entity implements Poolable {
 
 	private int m_id;
+	private long m_handle;
 	private Registry m_registry;
 	private Archetype m_archetype;
-	private Object[] m_components;
+	private Object[] m_detachedComponents;
 
-	Entity(int id, Registry registry, Archetype archetype, Object... components) {
+	Entity(int id, Registry registry, Archetype archetype) {
 		this.setID(id);
 		this.m_registry = registry;
 		this.m_archetype = archetype;
-		this.m_components = components;
 	}
 
 	public Entity add(Object... components) {
@@ -23,12 +25,21 @@ public final class Entity implements Poolable {
 	}
 
 	public Object replace(Object component) {
+		return m_registry.replace(this, component);
+	}
+
+	Object replaceComponent(Object component) {
 		if (component == null || !isEnabled()) return null;
+		SparseSet<Object> sparseSet = sparseSet(component.getClass());
+		if (sparseSet != null) return sparseSet.contains(HandleTable.indexOf(m_handle)) ? sparseSet.put(HandleTable.indexOf(m_handle), component) : null;
+		if (m_registry.getArchetypeList().isShared(component.getClass())) return m_registry.replaceShared(this, component);
 		int index = m_archetype.indexOf((Class<?>) component.getClass());
-		var oldComponent = m_components[index];
-		if (oldComponent == null) return null;
-		m_components[index] = component;
-		return oldComponent;
+		if (index < 0) return null;
+		return m_archetype.set(m_id, index, component);
+	}
+
+	public boolean markChanged(Class<?> componentType) {
+		return m_registry.markChanged(this, componentType);
 	}
 
 	public Object remove(Object component) {
@@ -42,25 +53,39 @@ public final class Entity implements Poolable {
 	}
 
 	public <T> T get(Class<T> componentType) {
+		if (m_archetype == null) return null;
+		SparseSet<Object> sparseSet = sparseSet(componentType);
+		if (sparseSet != null) {
+			var component = sparseSet.get(HandleTable.indexOf(m_handle));
+			return componentType.isInstance(component) ? componentType.cast(component) : null;
+		}
+		if (m_archetype.length() == 0) return null;
 		int index = m_archetype.indexOf(componentType);
 		if (index < 0) return null;
-		var component = m_components[index];
+		var component = m_detachedComponents != null ? m_detachedComponents[index] : m_archetype.get(m_id, index);
 		if (componentType.isInstance(component)) return componentType.cast(component);
 		return null;
 	}
 
 	public boolean contains(Class<?> componentType) {
-		if (componentType == null || m_components == null) return false;
-		if (m_archetype.length() == 1) return m_components[0].getClass().equals(componentType);
+		if (componentType == null || m_archetype == null) return false;
+		SparseSet<Object> sparseSet = sparseSet(componentType);
+		if (sparseSet != null) return sparseSet.contains(HandleTable.indexOf(m_handle));
+		if (m_archetype.length() == 0) return false;
+		if (m_archetype.length() == 1) return m_archetype.getComponentTypes()[0].equals(componentType);
 		return m_archetype.indexOf(componentType) > -1;
 	}
 
 	public boolean contains(Object component) {
-		if (component == null || m_components == null) return false;
-		if (m_archetype.length() == 1) m_components[0].equals(component);
-		int index = m_archetype.indexOf(component.getClass());
-		if (index > -1) return m_components[index].equals(component);
-		return false;
+		if (component == null || m_archetype == null) return false;
+		if (m_registry.getArchetypeList().isTag(component.getClass())) return contains(component.getClass());
+		var stored = get(component.getClass());
+		return stored != null && stored.equals(component);
+	}
+
+	@SuppressWarnings("unchecked")
+	private SparseSet<Object> sparseSet(Class<?> componentType) {
+		return (SparseSet<Object>) m_registry.getArchetypeList().getSparseSet(componentType);
 	}
 
 	public <S extends Enum<S>> void register(S signal, EventSink.ComponentEvent event) {
@@ -85,6 +110,19 @@ public final class Entity implements Poolable {
 		m_id = id;
 	}
 
+	/**
+	 * Returns the generational handle of this entity, which stays the same for
+	 * its whole lifetime and is detected as stale once it is destroyed.
+	 */
+	public long getHandle() {
+		return m_handle;
+	}
+
+	Entity setHandle(long handle) {
+		m_handle = handle;
+		return this;
+	}
+
 	public String getFormattedID() {
 		return m_registry.getEntityPool().getIDFactory().idToString(m_id);
 	}
@@ -121,12 +159,22 @@ public final class Entity implements Poolable {
 		return this;
 	}
 
+	/**
+	 * Returns the components of this entity, in the column order of its
+	 * archetype. While attached, the components are gathered from the columns of
+	 * the archetype into a new array; while detached, the parked components are
+	 * returned.
+	 */
 	public Object[] getComponents() {
-		return m_components;
+		if (m_detachedComponents != null || m_archetype == null) return m_detachedComponents;
+		return m_archetype.gather(m_id);
 	}
 
+	/**
+	 * Parks the components of a detached entity, or clears them once attached.
+	 */
 	Entity setComponents(Object[] components) {
-		m_components = components;
+		m_detachedComponents = components;
 		return this;
 	}
 	
@@ -135,7 +183,7 @@ public final class Entity implements Poolable {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + m_id;
-		result = prime * result + ((m_components == null) ? 0 : m_components.hashCode());
+		result = prime * result + ((m_archetype == null) ? 0 : m_archetype.hashCode());
 		return result;
 	}
 
@@ -146,10 +194,11 @@ public final class Entity implements Poolable {
 		sb.append("id=[");
 		sb.append(m_registry.getEntityPool().getIDFactory().idToString(m_id));
 		sb.append("], components={");
-		if (m_components != null && m_components.length > 0) {
-			for (int i = 0; i < m_components.length; i++) {
+		Object[] components = getComponents();
+		if (components != null && components.length > 0) {
+			for (int i = 0; i < components.length; i++) {
 				if (i > 0) sb.append(", ");
-				sb.append(m_components[i].toString());
+				sb.append(components[i].toString());
 			}
 		}
 		sb.append("}]");
@@ -13,7 +13,8 @@ public final class EventSink {
 	public static enum ListenerType {
 		ON_COMPONENT_ADD,
 		ON_COMPONENT_REPLACE,
-		ON_COMPONENT_REMOVE;
+		ON_COMPONENT_REMOVE,
+		ON_BATCH_ADD;
 	}
 
 	public static final class Any {
@@ -21,11 +22,20 @@ public final class EventSink {
 	}
 
 	public static final Class<Any> ANY = Any.class;
+
+	/**
+	 * The data of an {@link ListenerType#ON_BATCH_ADD} event: the component types
+	 * and the handles of every entity created by one batch. Listeners receive it
+	 * with a null entity.
+	 */
+	public static record Batch(Class<?>[] componentTypes, long[] handles) {
+	}
 	
 	private final LinkedSignal m_rootSignal;
 	private final Map<Class<?>, List<ComponentEvent>> m_onComponentAddListeners;
 	private final Map<Class<?>, List<ComponentEvent>> m_onComponentReplaceListeners;
 	private final Map<Class<?>, List<ComponentEvent>> m_onComponentRemoveListeners;
+	private final Map<Class<?>, List<ComponentEvent>> m_onBatchAddListeners;
 
 	EventSink() {
 		this.m_rootSignal = new LinkedSignal();
@@ -35,6 +45,8 @@ public final class EventSink {
 		m_onComponentReplaceListeners.put(Any.class, new CopyOnWriteArrayList<ComponentEvent>());
 		this.m_onComponentRemoveListeners = new ConcurrentHashMap<Class<?>, List<ComponentEvent>>();
 		m_onComponentRemoveListeners.put(Any.class, new CopyOnWriteArrayList<ComponentEvent>());
+		this.m_onBatchAddListeners = new ConcurrentHashMap<Class<?>, List<ComponentEvent>>();
+		m_onBatchAddListeners.put(Any.class, new CopyOnWriteArrayList<ComponentEvent>());
 	}
 
 	public <S extends Enum<S>> void register(Entity entity, S signal, ComponentEvent event) {
@@ -193,6 +205,7 @@ public final class EventSink {
 		case ON_COMPONENT_ADD -> m_onComponentAddListeners.putIfAbsent(componentType, listeners = m_onComponentAddListeners.getOrDefault(componentType, new CopyOnWriteArrayList<ComponentEvent>()));
 		case ON_COMPONENT_REPLACE -> m_onComponentReplaceListeners.putIfAbsent(componentType, listeners = m_onComponentReplaceListeners.getOrDefault(componentType, new CopyOnWriteArrayList<ComponentEvent>()));
 		case ON_COMPONENT_REMOVE -> m_onComponentRemoveListeners.putIfAbsent(componentType, listeners = m_onComponentRemoveListeners.getOrDefault(componentType, new CopyOnWriteArrayList<ComponentEvent>()));
+		case ON_BATCH_ADD -> m_onBatchAddListeners.putIfAbsent(componentType, listeners = m_onBatchAddListeners.getOrDefault(componentType, new CopyOnWriteArrayList<ComponentEvent>()));
 		default -> throw new IllegalArgumentException("Unknown listener type `" + type + "` connection attempted");
 		}
 
@@ -208,6 +221,7 @@ public final class EventSink {
 		case ON_COMPONENT_ADD -> m_onComponentAddListeners.getOrDefault(componentType, null);
 		case ON_COMPONENT_REPLACE -> m_onComponentReplaceListeners.getOrDefault(componentType, null);
 		case ON_COMPONENT_REMOVE -> m_onComponentAddListeners.getOrDefault(componentType, null);
+		case ON_BATCH_ADD -> m_onBatchAddListeners.getOrDefault(componentType, null);
 		default -> throw new IllegalArgumentException("Unknown listener type `" + type + "` disconnection attempted");
 		};
 		if (listeners == null || listeners.isEmpty()) {
@@ -217,6 +231,18 @@ public final class EventSink {
 		listeners.remove(listener);
 	}
 
+	boolean isConnected(ListenerType type, Class<?> componentType) {
+		Map<Class<?>, List<ComponentEvent>> listenerMap = switch (type) {
+		case ON_COMPONENT_ADD -> m_onComponentAddListeners;
+		case ON_COMPONENT_REPLACE -> m_onComponentReplaceListeners;
+		case ON_COMPONENT_REMOVE -> m_onComponentRemoveListeners;
+		case ON_BATCH_ADD -> m_onBatchAddListeners;
+		default -> throw new IllegalArgumentException("Unknown listener type: " + type);
+		};
+		List<ComponentEvent> listeners = listenerMap.get(componentType);
+		return (listeners != null && !listeners.isEmpty()) || !listenerMap.get(Any.class).isEmpty();
+	}
+
 	protected void emit(ListenerType type, Class<?> componentType, Entity entity, Object data) {
 		Iterator<ComponentEvent> specializedIterator;
 		Iterator<ComponentEvent> anyIterator;
@@ -253,11 +279,29 @@ public final class EventSink {
 		}
 	}
 
+	/**
+	 * Notifies the batch listeners of each component type of the batch, then the
+	 * batch listeners of any type once.
+	 */
+	void emitBatch(Batch batch) {
+		for (Class<?> componentType : batch.componentTypes()) {
+			List<ComponentEvent> listeners = m_onBatchAddListeners.get(componentType);
+			if (listeners == null) continue;
+			for (var listener : listeners) {
+				listener.accept(null, batch);
+			}
+		}
+		for (var listener : m_onBatchAddListeners.get(Any.class)) {
+			listener.accept(null, batch);
+		}
+	}
+
 	public void clear() {
 		m_rootSignal.clear();
 		m_onComponentAddListeners.clear();
 		m_onComponentReplaceListeners.clear();
 		m_onComponentRemoveListeners.clear();
+		m_onBatchAddListeners.clear();
 	}
 
 	@Override
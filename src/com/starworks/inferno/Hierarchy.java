@@ -0,0 +1,482 @@
+package com.starworks.inferno;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+
+import com.starworks.inferno.collections.HandleTable;
+
+/**
+ * Indexes the parent/child relationships declared by the {@link Parent}
+ * components of a registry, by entity handle.
+ *
+ * <p>
+ * The index keeps the parent, the children and the depth of every entity that
+ * has a parent or children, and follows the parent components as they are
+ * added, replaced and removed; destroying an entity turns its children into
+ * roots. {@link #levels()} groups the entities by depth, breadth first, so
+ * that a system propagating transforms from parents to children can process
+ * each level in parallel once the previous one is done,
+ * as {@link #forEachParallel(Scheduler, LongConsumer)} does.
+ */
+public final class Hierarchy {
+
+	private static final int NONE = -1;
+	private static final int PARALLEL_THRESHOLD = 1 << 9;
+	private static final long[][] EMPTY = new long[0][];
+
+	private final Registry m_registry;
+	private long[] m_handles;
+	private int[] m_parents;
+	private int[] m_firstChildren;
+	private int[] m_nextSiblings;
+	private int[] m_previousSiblings;
+	private int[] m_depths;
+	private int m_size;
+	private long[][] m_levels;
+	private final StampedLock m_lock;
+
+	Hierarchy(Registry registry) {
+		this.m_registry = registry;
+		this.m_handles = new long[0];
+		this.m_parents = new int[0];
+		this.m_firstChildren = new int[0];
+		this.m_nextSiblings = new int[0];
+		this.m_previousSiblings = new int[0];
+		this.m_depths = new int[0];
+		this.m_size = 0;
+		this.m_levels = EMPTY;
+		this.m_lock = new StampedLock();
+	}
+
+	/**
+	 * Links the child to the parent, moving it away from its previous parent.
+	 * A parent that is not alive leaves the child a root.
+	 *
+	 * @throws IllegalArgumentException if the child is the parent or one of its
+	 *                                  ancestors
+	 */
+	void link(long child, long parent) {
+		if (parent == HandleTable.NULL_HANDLE || !m_registry.isAlive(parent)) {
+			unlink(child);
+			return;
+		}
+		long stamp = m_lock.writeLock();
+		try {
+			link0(child, parent);
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	private void link0(long child, long parent) {
+		if (child == parent || (linked(child) && isAncestor(HandleTable.indexOf(child), parent))) {
+			throw new IllegalArgumentException("Linking " + HandleTable.handleToString(child) + " to " + HandleTable.handleToString(parent) + " would create a cycle");
+		}
+		int c = node(child);
+		int p = node(parent);
+		if (m_parents[c] == p) {
+			return;
+		}
+		detach(c);
+		m_parents[c] = p;
+		m_nextSiblings[c] = m_firstChildren[p];
+		if (m_firstChildren[p] != NONE) {
+			m_previousSiblings[m_firstChildren[p]] = c;
+		}
+		m_firstChildren[p] = c;
+		setDepth(c, m_depths[p] + 1);
+		m_levels = null;
+	}
+
+	/**
+	 * Unlinks the child from its parent, making it a root.
+	 */
+	void unlink(long child) {
+		long stamp = m_lock.writeLock();
+		try {
+			if (!linked(child)) {
+				return;
+			}
+			int c = HandleTable.indexOf(child);
+			if (m_parents[c] == NONE) {
+				return;
+			}
+			detach(c);
+			setDepth(c, 0);
+			prune(c);
+			m_levels = null;
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Drops the entity of the released handle from the index; its children
+	 * become roots.
+	 */
+	void release(long handle) {
+		long stamp = m_lock.writeLock();
+		try {
+			release0(handle);
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	private void release0(long handle) {
+		if (!linked(handle)) {
+			return;
+		}
+		int i = HandleTable.indexOf(handle);
+		detach(i);
+		for (int child = m_firstChildren[i], next; child != NONE; child = next) {
+			next = m_nextSiblings[child];
+			m_parents[child] = NONE;
+			m_nextSiblings[child] = NONE;
+			m_previousSiblings[child] = NONE;
+			setDepth(child, 0);
+			prune(child);
+		}
+		m_firstChildren[i] = NONE;
+		prune(i);
+		m_levels = null;
+	}
+
+	public boolean contains(long handle) {
+		long stamp = m_lock.tryOptimisticRead();
+		boolean contains = linked(handle);
+		if (!m_lock.validate(stamp)) {
+			stamp = m_lock.readLock();
+			try {
+				contains = linked(handle);
+			} finally {
+				m_lock.unlockRead(stamp);
+			}
+		}
+		return contains;
+	}
+
+	/**
+	 * Returns the handle of the parent of the entity, or
+	 * {@link HandleTable#NULL_HANDLE} if it has none.
+	 */
+	public long parentOf(long handle) {
+		long stamp = m_lock.tryOptimisticRead();
+		long parent = parentOf0(handle);
+		if (!m_lock.validate(stamp)) {
+			stamp = m_lock.readLock();
+			try {
+				parent = parentOf0(handle);
+			} finally {
+				m_lock.unlockRead(stamp);
+			}
+		}
+		return parent;
+	}
+
+	private long parentOf0(long handle) {
+		long[] handles = m_handles;
+		int[] parents = m_parents;
+		int i = HandleTable.indexOf(handle);
+		if (handle == HandleTable.NULL_HANDLE || i >= handles.length || i >= parents.length || handles[i] != handle) {
+			return HandleTable.NULL_HANDLE;
+		}
+		int parent = parents[i];
+		return parent < 0 || parent >= handles.length ? HandleTable.NULL_HANDLE : handles[parent];
+	}
+
+	/**
+	 * Returns the handles of the children of the entity, most recently linked
+	 * first.
+	 */
+	public long[] childrenOf(long handle) {
+		long stamp = m_lock.readLock();
+		try {
+			if (!linked(handle)) {
+				return new long[0];
+			}
+			int i = HandleTable.indexOf(handle);
+			int count = 0;
+			for (int child = m_firstChildren[i]; child != NONE; child = m_nextSiblings[child]) {
+				count++;
+			}
+			long[] children = new long[count];
+			count = 0;
+			for (int child = m_firstChildren[i]; child != NONE; child = m_nextSiblings[child]) {
+				children[count++] = m_handles[child];
+			}
+			return children;
+		} finally {
+			m_lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the number of ancestors of the entity, 0 for a root.
+	 */
+	public int depthOf(long handle) {
+		long stamp = m_lock.tryOptimisticRead();
+		int depth = depthOf0(handle);
+		if (!m_lock.validate(stamp)) {
+			stamp = m_lock.readLock();
+			try {
+				depth = depthOf0(handle);
+			} finally {
+				m_lock.unlockRead(stamp);
+			}
+		}
+		return depth;
+	}
+
+	private int depthOf0(long handle) {
+		long[] handles = m_handles;
+		int[] depths = m_depths;
+		int i = HandleTable.indexOf(handle);
+		return handle != HandleTable.NULL_HANDLE && i < handles.length && i < depths.length && handles[i] == handle ? depths[i] : 0;
+	}
+
+	/**
+	 * Returns the number of entities that have a parent or children.
+	 */
+	public int size() {
+		long stamp = m_lock.readLock();
+		try {
+			return m_size;
+		} finally {
+			m_lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the handles of the entities of the index grouped by depth, the
+	 * roots first, breadth first: the children of an entity are contiguous
+	 * within their level. The levels are computed once per change of the index
+	 * and must not be modified.
+	 */
+	public long[][] levels() {
+		long stamp = m_lock.readLock();
+		try {
+			if (m_levels != null) {
+				return m_levels;
+			}
+		} finally {
+			m_lock.unlockRead(stamp);
+		}
+		stamp = m_lock.writeLock();
+		try {
+			if (m_levels == null) {
+				m_levels = computeLevels();
+			}
+			return m_levels;
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Performs the action for every entity of the index, breadth first, so that
+	 * the action sees every parent before its children.
+	 */
+	public void forEach(LongConsumer action) {
+		for (long[] level : levels()) {
+			for (long handle : level) {
+				action.accept(handle);
+			}
+		}
+	}
+
+	/**
+	 * Performs the action for every entity of the index, level by level, in
+	 * parallel within each level on the work-stealing pool of the scheduler.
+	 * Every level is done before the next one starts, so the action sees every
+	 * parent before its children; it must be safe to run concurrently for the
+	 * entities of a level.
+	 */
+	public void forEachParallel(Scheduler scheduler, LongConsumer action) {
+		for (long[] level : levels()) {
+			if (level.length <= PARALLEL_THRESHOLD) {
+				for (long handle : level) {
+					action.accept(handle);
+				}
+			} else {
+				scheduler.invoke(new LevelAction(level, 0, level.length, action));
+			}
+		}
+	}
+
+	private long[][] computeLevels() {
+		if (m_size == 0) {
+			return EMPTY;
+		}
+		int depth = 0;
+		for (int i = 0; i < m_handles.length; i++) {
+			if (m_handles[i] != HandleTable.NULL_HANDLE) {
+				depth = Math.max(depth, m_depths[i]);
+			}
+		}
+		long[][] levels = new long[depth + 1][];
+		int[] indices = new int[m_size];
+		int count = 0;
+		for (int i = 0; i < m_handles.length; i++) {
+			if (m_handles[i] != HandleTable.NULL_HANDLE && m_parents[i] == NONE) {
+				indices[count++] = i;
+			}
+		}
+		for (int level = 0, start = 0; level < levels.length; level++) {
+			int end = count;
+			levels[level] = new long[end - start];
+			for (int j = start; j < end; j++) {
+				int i = indices[j];
+				levels[level][j - start] = m_handles[i];
+				for (int child = m_firstChildren[i]; child != NONE; child = m_nextSiblings[child]) {
+					indices[count++] = child;
+				}
+			}
+			start = end;
+		}
+		return levels;
+	}
+
+	private int node(long handle) {
+		int i = HandleTable.indexOf(handle);
+		if (i >= m_handles.length) {
+			grow(i + 1);
+		}
+		if (m_handles[i] == handle) {
+			return i;
+		}
+		if (m_handles[i] != HandleTable.NULL_HANDLE) {
+			release0(m_handles[i]);
+		}
+		m_handles[i] = handle;
+		m_depths[i] = 0;
+		m_size++;
+		return i;
+	}
+
+	private void grow(int minCapacity) {
+		int length = m_handles.length;
+		int capacity = Math.max(minCapacity, Math.max(16, length << 1));
+		m_handles = Arrays.copyOf(m_handles, capacity);
+		m_parents = grow(m_parents, capacity);
+		m_firstChildren = grow(m_firstChildren, capacity);
+		m_nextSiblings = grow(m_nextSiblings, capacity);
+		m_previousSiblings = grow(m_previousSiblings, capacity);
+		m_depths = Arrays.copyOf(m_depths, capacity);
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		int length = array.length;
+		array = Arrays.copyOf(array, capacity);
+		Arrays.fill(array, length, capacity, NONE);
+		return array;
+	}
+
+	private void detach(int i) {
+		int parent = m_parents[i];
+		if (parent == NONE) {
+			return;
+		}
+		int previous = m_previousSiblings[i];
+		int next = m_nextSiblings[i];
+		if (previous != NONE) {
+			m_nextSiblings[previous] = next;
+		} else {
+			m_firstChildren[parent] = next;
+		}
+		if (next != NONE) {
+			m_previousSiblings[next] = previous;
+		}
+		m_parents[i] = NONE;
+		m_nextSiblings[i] = NONE;
+		m_previousSiblings[i] = NONE;
+		prune(parent);
+	}
+
+	/**
+	 * Drops the entity from the index once it has neither parent nor children.
+	 */
+	private void prune(int i) {
+		if (m_parents[i] == NONE && m_firstChildren[i] == NONE && m_handles[i] != HandleTable.NULL_HANDLE) {
+			m_handles[i] = HandleTable.NULL_HANDLE;
+			m_size--;
+		}
+	}
+
+	private boolean linked(long handle) {
+		long[] handles = m_handles;
+		int i = HandleTable.indexOf(handle);
+		return handle != HandleTable.NULL_HANDLE && i < handles.length && handles[i] == handle;
+	}
+
+	private boolean isAncestor(int ancestor, long handle) {
+		if (!linked(handle)) {
+			return false;
+		}
+		for (int i = m_parents[HandleTable.indexOf(handle)]; i != NONE; i = m_parents[i]) {
+			if (i == ancestor) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the depth of the entity and updates its descendants, walking the
+	 * subtree through the sibling links instead of a stack.
+	 */
+	private void setDepth(int root, int depth) {
+		m_depths[root] = depth;
+		int i = m_firstChildren[root];
+		while (i != NONE) {
+			m_depths[i] = m_depths[m_parents[i]] + 1;
+			if (m_firstChildren[i] != NONE) {
+				i = m_firstChildren[i];
+				continue;
+			}
+			while (i != root && m_nextSiblings[i] == NONE) {
+				i = m_parents[i];
+			}
+			if (i == root) {
+				break;
+			}
+			i = m_nextSiblings[i];
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Hierarchy[size=" + size() + ", depth=" + levels().length + "]";
+	}
+
+	private static final class LevelAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long[] m_level;
+		private final int m_start;
+		private final int m_end;
+		private final LongConsumer m_action;
+
+		private LevelAction(long[] level, int start, int end, LongConsumer action) {
+			this.m_level = level;
+			this.m_start = start;
+			this.m_end = end;
+			this.m_action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_end - m_start <= PARALLEL_THRESHOLD) {
+				for (int i = m_start; i < m_end; i++) {
+					m_action.accept(m_level[i]);
+				}
+				return;
+			}
+			int middle = (m_start + m_end) >>> 1;
+			invokeAll(new LevelAction(m_level, m_start, middle, m_action), new LevelAction(m_level, middle, m_end, m_action));
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.starworks.inferno;
+
+import com.starworks.inferno.collections.HandleTable;
+
+/**
+ * The component linking an entity to its parent in the {@link Hierarchy} of a
+ * registry, by the handle of the parent.
+ */
+public record Parent(long handle) {
+
+	public Parent(Entity parent) {
+		this(parent.getHandle());
+	}
+
+	@Override
+	public String toString() {
+		return "Parent[" + HandleTable.handleToString(handle) + "]";
+	}
+}
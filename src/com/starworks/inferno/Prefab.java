@@ -0,0 +1,178 @@
+package com.starworks.inferno;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.starworks.inferno.util.UnsafeSupport;
+
+import sun.misc.Unsafe;
+
+/**
+ * A template of components to instantiate entities from. The archetype of the
+ * template, the column of each component and a copier for each component type
+ * are resolved once, when the prefab is created, so that instantiating it only
+ * copies the components into their columns.
+ */
+public final class Prefab {
+
+	private final Object[] m_components;
+	private final Class<?>[] m_componentTypes;
+	private final Archetype m_archetype;
+	private final int[] m_columns;
+	private final Copier[] m_copiers;
+	private final boolean m_sparse;
+
+	Prefab(ArchetypeList archetypeList, Object... components) {
+		this.m_components = components.clone();
+		this.m_componentTypes = new Class<?>[m_components.length];
+		Object[] archetypeComponents = archetypeList.withoutSparse(m_components);
+		this.m_archetype = archetypeList.getOrCreate(archetypeComponents.length == 0 ? null : archetypeComponents);
+		this.m_columns = new int[m_components.length];
+		this.m_copiers = new Copier[m_components.length];
+		this.m_sparse = archetypeComponents != m_components;
+		for (int i = 0; i < m_components.length; i++) {
+			Class<?> componentType = m_components[i].getClass();
+			m_componentTypes[i] = componentType;
+			m_columns[i] = archetypeList.getSparseSet(componentType) != null ? -1 : m_archetype.indexOf(componentType);
+			m_copiers[i] = Copier.of(componentType, archetypeList.getFlatLayout(componentType) != null || archetypeList.isShared(componentType));
+		}
+	}
+
+	/**
+	 * Returns a copy of the component at the specified position of the template.
+	 */
+	Object copy(int position) {
+		return m_copiers[position].copy(m_components[position]);
+	}
+
+	/**
+	 * Returns copies of all the components of the template.
+	 */
+	Object[] instance() {
+		Object[] components = new Object[m_components.length];
+		for (int i = 0; i < components.length; i++) {
+			components[i] = copy(i);
+		}
+		return components;
+	}
+
+	/**
+	 * Returns the column of each component of the template, or -1 for the
+	 * components stored in sparse sets.
+	 */
+	int[] columns() {
+		return m_columns;
+	}
+
+	boolean hasSparse() {
+		return m_sparse;
+	}
+
+	public Archetype getArchetype() {
+		return m_archetype;
+	}
+
+	public Class<?>[] getComponentTypes() {
+		return m_componentTypes.clone();
+	}
+
+	public int length() {
+		return m_components.length;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Prefab[");
+		for (int i = 0; i < m_componentTypes.length; i++) {
+			sb.append(m_componentTypes[i].getSimpleName());
+			if (i < m_componentTypes.length - 1) {
+				sb.append(",");
+			}
+		}
+		sb.append("]");
+		return sb.toString();
+	}
+
+	/**
+	 * Copies the instances of one component type field by field, through the
+	 * field offsets resolved when the copier is built.
+	 *
+	 * <p>
+	 * Records, enums, strings and boxed primitives are immutable and are shared
+	 * by every instance rather than copied; so are the components stored flat,
+	 * as their columns copy the fields on write, and the shared components, as
+	 * every instance refers to the same value. The copy of a class is shallow.
+	 */
+	static final class Copier {
+
+		private static final Unsafe unsafe = UnsafeSupport.getUnsafe();
+
+		static final Copier SHARED = new Copier(null, new long[0], new Class<?>[0]);
+
+		private final Class<?> m_type;
+		private final long[] m_offsets;
+		private final Class<?>[] m_fieldTypes;
+
+		private Copier(Class<?> type, long[] offsets, Class<?>[] fieldTypes) {
+			this.m_type = type;
+			this.m_offsets = offsets;
+			this.m_fieldTypes = fieldTypes;
+		}
+
+		static Copier of(Class<?> type, boolean flat) {
+			if (flat || type.isRecord() || type.isEnum() || type.isArray() || type == String.class || Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang.")
+					|| type == Boolean.class || type == Character.class) {
+				return SHARED;
+			}
+			List<Field> fields = new ArrayList<Field>();
+			for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if ((field.getModifiers() & Modifier.STATIC) == 0) {
+						fields.add(field);
+					}
+				}
+			}
+			if (fields.isEmpty()) {
+				return SHARED;
+			}
+			long[] offsets = new long[fields.size()];
+			Class<?>[] fieldTypes = new Class<?>[fields.size()];
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = UnsafeSupport.objectFieldOffset(fields.get(i));
+				fieldTypes[i] = fields.get(i).getType();
+			}
+			return new Copier(type, offsets, fieldTypes);
+		}
+
+		Object copy(Object template) {
+			if (m_type == null) {
+				return template;
+			}
+			Object instance;
+			try {
+				instance = unsafe.allocateInstance(m_type);
+			} catch (InstantiationException e) {
+				throw new IllegalStateException("Unable to instantiate " + m_type.getName(), e);
+			}
+			for (int i = 0; i < m_offsets.length; i++) {
+				long offset = m_offsets[i];
+				Class<?> fieldType = m_fieldTypes[i];
+				if (!fieldType.isPrimitive()) {
+					unsafe.putObject(instance, offset, unsafe.getObject(template, offset));
+				} else if (fieldType == long.class || fieldType == double.class) {
+					unsafe.putLong(instance, offset, unsafe.getLong(template, offset));
+				} else if (fieldType == int.class || fieldType == float.class) {
+					unsafe.putInt(instance, offset, unsafe.getInt(template, offset));
+				} else if (fieldType == short.class || fieldType == char.class) {
+					unsafe.putShort(instance, offset, unsafe.getShort(template, offset));
+				} else {
+					unsafe.putByte(instance, offset, unsafe.getByte(template, offset));
+				}
+			}
+			return instance;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.starworks.inferno;
+
+import java.util.Arrays;
+
+import com.starworks.inferno.collections.ClassMap.ClassIndex;
+
+/**
+ * The archetypes storing all of a set of component types, none of another and,
+ * unless it is empty, any of a third, kept up to date by the
+ * {@link ArchetypeList} that created the query: each archetype created
+ * afterwards is matched once, when it is created, and appended if it matches. Reading the matching archetypes costs nothing more
+ * than reading an array, so views built on a query are free to rebuild.
+ */
+public final class Query {
+
+	private final ClassIndex m_all;
+	private final ClassIndex m_none;
+	private final ClassIndex m_any;
+	private volatile Archetype[] m_archetypes;
+
+	Query(ClassIndex all, ClassIndex none, ClassIndex any) {
+		this.m_all = all;
+		this.m_none = none;
+		this.m_any = any;
+		this.m_archetypes = new Archetype[0];
+	}
+
+	public boolean matches(Archetype archetype) {
+		ClassIndex signature = archetype.getSignature();
+		return signature != null && signature.containsAll(m_all) && (m_none == null || !signature.intersects(m_none)) && (m_any == null || signature.intersects(m_any));
+	}
+
+	/**
+	 * Appends the archetype if it matches; called by the archetype list, one
+	 * archetype at a time.
+	 */
+	void offer(Archetype archetype) {
+		if (matches(archetype)) {
+			Archetype[] archetypes = Arrays.copyOf(m_archetypes, m_archetypes.length + 1);
+			archetypes[archetypes.length - 1] = archetype;
+			m_archetypes = archetypes;
+		}
+	}
+
+	/**
+	 * Replaces the matching archetypes with the given ones, which are known to
+	 * match; called by the archetype list once, before the query is published.
+	 */
+	void seed(Archetype[] archetypes) {
+		m_archetypes = archetypes;
+	}
+
+	/**
+	 * Returns the matching archetypes, in order of creation. The returned array
+	 * must not be modified.
+	 */
+	Archetype[] archetypes() {
+		return m_archetypes;
+	}
+
+	public int size() {
+		return m_archetypes.length;
+	}
+
+	@Override
+	public String toString() {
+		return "Query[all=" + m_all + ", none=" + m_none + ", any=" + m_any + ", archetypes=" + m_archetypes.length + "]";
+	}
+}
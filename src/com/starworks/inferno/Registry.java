@@ -1,19 +1,27 @@
 package com.starworks.inferno;
 
 import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.starworks.inferno.collections.ClassMap.ClassIndex;
-import com.starworks.inferno.ArchetypeList.Node;
 import com.starworks.inferno.collections.ChunkedPool;
 import com.starworks.inferno.collections.ChunkedPool.IDFactory;
+import com.starworks.inferno.collections.FlatLayout;
+import com.starworks.inferno.collections.HandleTable;
+import com.starworks.inferno.collections.MappedStorage;
+import com.starworks.inferno.collections.SparseSet;
 import com.starworks.inferno.util.StripedLock;
 import com.starworks.inferno.util.StripedLock.StripedReadWriteLock;
 
@@ -21,6 +29,8 @@ public final class Registry implements Closeable {
 
 	public static final int DEFAULT_SYSTEM_TIMEOUT_SECONDS = 3;
 
+	private static final Class<?>[] NO_TYPES = new Class<?>[0];
+
 	private final ChunkedPool<Entity> m_entityPool;
 	private final ArchetypeList m_archetypeList;
 	private final EventSink m_eventSink;
@@ -28,6 +38,10 @@ public final class Registry implements Closeable {
 	private final int m_systemTimeoutSeconds;
 	private final StripedReadWriteLock m_lock;
 	private final GsonBuilder m_gsonBuilder;
+	private final MappedStorage m_mappedStorage;
+	private volatile Object[] m_resources;
+	private volatile Hierarchy m_hierarchy;
+	private final AtomicInteger m_changeTick;
 
 	public Registry() {
 		this(DEFAULT_SYSTEM_TIMEOUT_SECONDS);
@@ -41,7 +55,21 @@ public final class Registry implements Closeable {
 		this(DEFAULT_SYSTEM_TIMEOUT_SECONDS, gsonBuilder);
 	}
 
+	/**
+	 * Constructs a registry backing the chunk storage of primitive-only component
+	 * types with memory-mapped files in the working directory, so that worlds
+	 * larger than the heap can be paged by the operating system. Components
+	 * holding references stay on the heap.
+	 */
+	public Registry(Path workingDirectory) {
+		this(DEFAULT_SYSTEM_TIMEOUT_SECONDS, new GsonBuilder().setPrettyPrinting(), workingDirectory);
+	}
+
 	public Registry(int systemTimeoutSeconds, GsonBuilder gsonBuilder) {
+		this(systemTimeoutSeconds, gsonBuilder, null);
+	}
+
+	public Registry(int systemTimeoutSeconds, GsonBuilder gsonBuilder, Path workingDirectory) {
 		this.m_entityPool = new ChunkedPool<Entity>();
 		this.m_archetypeList = new ArchetypeList(this);
 		this.m_eventSink = new EventSink();
@@ -49,6 +77,9 @@ public final class Registry implements Closeable {
 		this.m_systemTimeoutSeconds = systemTimeoutSeconds;
 		this.m_lock = StripedLock.stripedReadWriteLock();
 		this.m_gsonBuilder = gsonBuilder;
+		this.m_mappedStorage = workingDirectory == null ? null : new MappedStorage(workingDirectory);
+		this.m_resources = new Object[0];
+		this.m_changeTick = new AtomicInteger(1);
 	}
 
 	public Entity create() {
@@ -58,9 +89,13 @@ public final class Registry implements Closeable {
 	}
 
 	public Entity emplace(Object... components) {
-		Object[] componentArray = components.length == 0 ? null : components;
+		Object[] archetypeComponents = m_archetypeList.withoutSparse(components);
+		Object[] componentArray = archetypeComponents.length == 0 ? null : archetypeComponents;
 		Archetype archetype = m_archetypeList.getOrCreate(componentArray);
 		Entity entity = archetype.createEntity(this, componentArray);
+		if (archetypeComponents != components) {
+			m_archetypeList.putSparse(HandleTable.indexOf(entity.getHandle()), components);
+		}
 		int size = components.length;
 		for (int i = 0; i < size; ++i) {
 			m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_ADD, components[i].getClass(), entity, components[i]);
@@ -169,6 +204,8 @@ public final class Registry implements Closeable {
 		if (!validate(entity)) {
 			return false;
 		}
+		m_archetypeList.removeSparse(HandleTable.indexOf(entity.getHandle()));
+		releaseHierarchy(entity.getHandle());
 		return entity.getArchetype().destroy(entity);
 	}
 
@@ -177,6 +214,9 @@ public final class Registry implements Closeable {
 			return;
 		}
 		entity.getArchetype().detach(entity);
+		m_archetypeList.removeSparse(HandleTable.indexOf(entity.getHandle()));
+		releaseHierarchy(entity.getHandle());
+		m_entityPool.getHandleTable().release(entity.getHandle());
 		entity.setID(IDFactory.RELEASED_BIT);
 	}
 
@@ -184,76 +224,394 @@ public final class Registry implements Closeable {
 		return !((entity.getID() & IDFactory.DETACHED_BIT) == IDFactory.DETACHED_BIT);
 	}
 
-	public Entity add(Entity entity, Object... components) {
+	public boolean isAlive(long handle) {
+		return m_entityPool.getHandleTable().isAlive(handle);
+	}
+
+	/**
+	 * Returns the entity referred to by the handle, or null if the handle is
+	 * stale or its entity is currently disabled. An entity is materialized for
+	 * handles created through {@link #createHandle(Object...)}.
+	 */
+	public Entity resolve(long handle) {
+		int id = m_entityPool.getHandleTable().locate(handle);
+		if ((id & IDFactory.DETACHED_BIT) != 0) {
+			return null;
+		}
+		Entity entity = m_entityPool.get(id);
+		return entity != null ? entity : archetypeOf(id).materialize(id);
+	}
+
+	/**
+	 * Creates an entity with the given components and returns its handle,
+	 * without allocating an {@link Entity} unless a listener needs one.
+	 */
+	public long createHandle(Object... components) {
+		Object[] archetypeComponents = m_archetypeList.withoutSparse(components);
+		Object[] componentArray = archetypeComponents.length == 0 ? null : archetypeComponents;
+		Archetype archetype = m_archetypeList.getOrCreate(componentArray);
+		long handle = archetype.createHandle(componentArray);
+		if (archetypeComponents != components) {
+			m_archetypeList.putSparse(HandleTable.indexOf(handle), components);
+		}
+		emitAdded(handle, components);
+		return handle;
+	}
+
+	/**
+	 * Creates count entities of the given component types in bulk and returns
+	 * their handles. The archetype is resolved once, the rows are reserved in
+	 * contiguous runs and filled column by column, and a single
+	 * {@link EventSink.ListenerType#ON_BATCH_ADD} event is emitted instead of one
+	 * add event per component. The factory returns the components of the entity
+	 * at each position, in the order of the types.
+	 */
+	public long[] emplaceBatch(int count, Class<?>[] types, IntFunction<Object[]> factory) {
+		if (count <= 0) {
+			return new long[0];
+		}
+		Object[] first = factory.apply(0);
+		if (first.length != types.length) {
+			throw new IllegalArgumentException("Expected " + types.length + " components, was " + first.length);
+		}
+		for (int i = 0; i < types.length; i++) {
+			if (first[i].getClass() != types[i]) {
+				throw new IllegalArgumentException("Expected " + types[i].getName() + " at " + i + ", was " + first[i].getClass().getName());
+			}
+		}
+		Object[] archetypeComponents = m_archetypeList.withoutSparse(first);
+		int[] positions = new int[archetypeComponents.length];
+		for (int i = 0, j = 0; i < types.length; i++) {
+			if (m_archetypeList.getSparseSet(types[i]) == null) {
+				positions[j++] = i;
+			}
+		}
+		Archetype archetype = m_archetypeList.getOrCreate(archetypeComponents.length == 0 ? null : archetypeComponents);
+		long[] handles = new long[count];
+		try {
+			if (archetype.hasSharedComponents()) {
+				createSharedHandles(handles, types, factory, first);
+			} else {
+				archetype.createHandles(handles, positions, factory, first, archetypeComponents != first);
+			}
+		} catch (RuntimeException e) {
+			for (long handle : handles) {
+				if (handle != HandleTable.NULL_HANDLE) destroy(handle);
+			}
+			throw e;
+		}
+		m_eventSink.emitBatch(new EventSink.Batch(types.clone(), handles));
+		return handles;
+	}
+
+	/**
+	 * Creates the handles of a batch one at a time, as the entities of an
+	 * archetype with shared components are partitioned by their shared values.
+	 */
+	private void createSharedHandles(long[] handles, Class<?>[] types, IntFunction<Object[]> factory, Object[] first) {
+		for (int i = 0; i < handles.length; i++) {
+			Object[] components = i == 0 ? first : factory.apply(i);
+			for (int j = 0; j < types.length; j++) {
+				if (components[j].getClass() != types[j]) {
+					throw new IllegalArgumentException("Expected " + types[j].getName() + " at " + j + ", was " + components[j].getClass().getName());
+				}
+			}
+			Object[] archetypeComponents = m_archetypeList.withoutSparse(components);
+			handles[i] = m_archetypeList.getOrCreate(archetypeComponents).createHandle(archetypeComponents);
+			if (archetypeComponents != components) {
+				m_archetypeList.putSparse(HandleTable.indexOf(handles[i]), components);
+			}
+		}
+	}
+
+	/**
+	 * Resolves the archetype and the columns of the given components once, to
+	 * instantiate entities from them through {@link #instantiate(Prefab)}.
+	 */
+	public Prefab createPrefab(Object... components) {
+		return new Prefab(m_archetypeList, components);
+	}
+
+	public Entity instantiate(Prefab prefab) {
+		Object[] components = prefab.instance();
+		Object[] archetypeComponents = prefab.hasSparse() ? m_archetypeList.withoutSparse(components) : components;
+		Entity entity = prefab.getArchetype().createEntity(this, archetypeComponents.length == 0 ? null : archetypeComponents);
+		if (archetypeComponents != components) {
+			m_archetypeList.putSparse(HandleTable.indexOf(entity.getHandle()), components);
+		}
+		for (int i = 0; i < components.length; ++i) {
+			m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_ADD, components[i].getClass(), entity, components[i]);
+		}
+		return entity;
+	}
+
+	/**
+	 * Instantiates count entities from the prefab in bulk and returns their
+	 * handles, emitting a single {@link EventSink.ListenerType#ON_BATCH_ADD}
+	 * event.
+	 */
+	public long[] instantiate(Prefab prefab, int count) {
+		if (count <= 0) {
+			return new long[0];
+		}
+		long[] handles = new long[count];
+		try {
+			prefab.getArchetype().instantiate(handles, prefab);
+		} catch (RuntimeException e) {
+			for (long handle : handles) {
+				if (handle != HandleTable.NULL_HANDLE) destroy(handle);
+			}
+			throw e;
+		}
+		m_eventSink.emitBatch(new EventSink.Batch(prefab.getComponentTypes(), handles));
+		return handles;
+	}
+
+	public boolean add(long handle, Object... components) {
+		int id = m_entityPool.getHandleTable().locate(handle);
+		if ((id & IDFactory.DETACHED_BIT) != 0) {
+			return false;
+		}
+		Entity entity = m_entityPool.get(id);
+		if (entity != null) {
+			return add(entity, components) != null;
+		}
 		if (components.length == 0) {
-			return entity;
+			return true;
 		}
-		int componentsLength = components.length;
-		Archetype prevArchetype = entity.getArchetype();
-		Object[] entityComponents = entity.getComponents();
-		int prevComponentsLength = prevArchetype.length();
-		if (prevComponentsLength == 0) {
-			Archetype archetype = m_archetypeList.getOrCreate(components);
-			Entity result = archetype.attach(prevArchetype.detach(entity), components);
-			for (int i = 0; i < componentsLength; ++i) {
-				m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_ADD, components[i].getClass(), result, components[i]);
+		Object[] archetypeComponents = m_archetypeList.withoutSparse(components);
+		if (archetypeComponents != components) {
+			m_archetypeList.putSparse(HandleTable.indexOf(handle), components);
+		}
+		if (archetypeComponents.length == 1 && !m_archetypeList.isShared(archetypeComponents[0].getClass())) {
+			Archetype prevArchetype = archetypeOf(id);
+			Class<?> componentType = archetypeComponents[0].getClass();
+			Archetype.Edge edge = prevArchetype.addEdge(componentType);
+			if (edge == null) {
+				edge = prevArchetype.cacheAddEdge(componentType, m_archetypeList.getOrCreate(merge(prevArchetype.gather(id), archetypeComponents)));
 			}
-			return result;
+			prevArchetype.move(edge, id, handle, archetypeComponents);
+		} else if (archetypeComponents.length > 0) {
+			Archetype prevArchetype = archetypeOf(id);
+			Object[] newComponentArray = merge(prevArchetype.gather(id), archetypeComponents);
+			Archetype archetype = m_archetypeList.getOrCreate(newComponentArray);
+			long[] ticks = prevArchetype.ticks(id);
+			prevArchetype.evict(id);
+			archetype.insert(handle, newComponentArray);
+			archetype.carryTicks(m_entityPool.getHandleTable().locate(handle), prevArchetype, ticks);
 		}
-		Object[] newComponentArray = new Object[prevComponentsLength + componentsLength];
-		if (prevComponentsLength == 1) {
-			newComponentArray[0] = entityComponents[0];
-		} else {
-			System.arraycopy(entityComponents, 0, newComponentArray, 0, prevComponentsLength);
+		emitAdded(handle, components);
+		return true;
+	}
+
+	public <T> T get(long handle, Class<T> componentType) {
+		int id = m_entityPool.getHandleTable().locate(handle);
+		if ((id & IDFactory.DETACHED_BIT) != 0) {
+			return null;
 		}
-		if (componentsLength == 1) {
-			newComponentArray[prevComponentsLength] = components[0];
-		} else {
-			System.arraycopy(components, 0, newComponentArray, prevComponentsLength, componentsLength);
+		SparseSet<?> sparseSet = m_archetypeList.getSparseSet(componentType);
+		if (sparseSet != null) {
+			Object component = sparseSet.get(HandleTable.indexOf(handle));
+			return componentType.isInstance(component) ? componentType.cast(component) : null;
 		}
-		Archetype archetype = m_archetypeList.getOrCreate(newComponentArray);
-		prevArchetype.detach(entity);
-		Entity result = archetype.attach(entity, newComponentArray);
+		Archetype archetype = archetypeOf(id);
+		int index = archetype.length() == 0 ? -1 : archetype.indexOf(componentType);
+		if (index < 0) {
+			return null;
+		}
+		Object component = archetype.get(id, index);
+		return componentType.isInstance(component) ? componentType.cast(component) : null;
+	}
+
+	public boolean destroy(long handle) {
+		int id = m_entityPool.getHandleTable().locate(handle);
+		if ((id & IDFactory.DETACHED_BIT) != 0) {
+			return false;
+		}
+		Entity entity = m_entityPool.get(id);
+		if (entity != null) {
+			return destroy(entity);
+		}
+		m_archetypeList.removeSparse(HandleTable.indexOf(handle));
+		releaseHierarchy(handle);
+		archetypeOf(id).destroy(id, handle);
+		return true;
+	}
+
+	private void releaseHierarchy(long handle) {
+		Hierarchy hierarchy = m_hierarchy;
+		if (hierarchy != null) {
+			hierarchy.release(handle);
+		}
+	}
+
+	Archetype archetypeOf(int id) {
+		return (Archetype) m_entityPool.getChunk(id).getAllocator().attachment();
+	}
+
+	void emitAdded(long handle, Object[] components) {
+		Entity entity = null;
+		for (int i = 0; i < components.length; ++i) {
+			if (!m_eventSink.isConnected(EventSink.ListenerType.ON_COMPONENT_ADD, components[i].getClass())) {
+				continue;
+			}
+			if (entity == null) {
+				entity = resolve(handle);
+			}
+			m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_ADD, components[i].getClass(), entity, components[i]);
+		}
+	}
+
+	public Entity add(Entity entity, Object... components) {
+		if (components.length == 0) {
+			return entity;
+		}
+		Object[] archetypeComponents = m_archetypeList.withoutSparse(components);
+		if (archetypeComponents != components) {
+			m_archetypeList.putSparse(HandleTable.indexOf(entity.getHandle()), components);
+		}
+		Entity result = archetypeComponents.length == 0 ? entity : move(entity, archetypeComponents);
 		for (int i = 0; i < components.length; ++i) {
 			m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_ADD, components[i].getClass(), result, components[i]);
 		}
 		return result;
 	}
 
+	private Entity move(Entity entity, Object[] components) {
+		Archetype prevArchetype = entity.getArchetype();
+		boolean cached = components.length == 1 && !m_archetypeList.isShared(components[0].getClass());
+		Archetype.Edge edge = cached ? prevArchetype.addEdge(components[0].getClass()) : null;
+		if (edge != null) {
+			return prevArchetype.move(edge, entity, components);
+		}
+		Object[] newComponentArray = merge(entity.getComponents(), components);
+		Archetype archetype = m_archetypeList.getOrCreate(newComponentArray);
+		if (cached) {
+			return prevArchetype.move(prevArchetype.cacheAddEdge(components[0].getClass(), archetype), entity, components);
+		}
+		long[] ticks = prevArchetype.ticks(entity.getID());
+		prevArchetype.evict(entity);
+		Entity result = archetype.attach(entity, newComponentArray);
+		archetype.carryTicks(result.getID(), prevArchetype, ticks);
+		return result;
+	}
+
+	private static Object[] merge(Object[] entityComponents, Object[] components) {
+		if (entityComponents == null || entityComponents.length == 0) {
+			return components;
+		}
+		Object[] newComponentArray = new Object[entityComponents.length + components.length];
+		System.arraycopy(entityComponents, 0, newComponentArray, 0, entityComponents.length);
+		System.arraycopy(components, 0, newComponentArray, entityComponents.length, components.length);
+		return newComponentArray;
+	}
+
 	public Object replace(Entity entity, Object component) {
 		if (entity == null) return null;
-		Object result = entity.replace(component);
-		m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_REPLACE, component.getClass(), entity, component);
+		Object result = entity.replaceComponent(component);
+		if (result != null) {
+			m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_REPLACE, component.getClass(), entity, component);
+		}
 		return result;
 	}
 
+	/**
+	 * Replaces a shared component of the entity by moving the entity into the
+	 * partition of the new value, unless the value is equal to the current one.
+	 */
+	Object replaceShared(Entity entity, Object component) {
+		Archetype prevArchetype = entity.getArchetype();
+		int index = prevArchetype.indexOf(component.getClass());
+		if (index < 0) return null;
+		Object[] components = entity.getComponents();
+		Object previous = components[index];
+		components[index] = component;
+		Archetype archetype = m_archetypeList.getOrCreate(components);
+		if (archetype != prevArchetype) {
+			long[] ticks = prevArchetype.ticks(entity.getID());
+			prevArchetype.evict(entity);
+			archetype.attach(entity, components);
+			archetype.carryTicks(entity.getID(), prevArchetype, ticks);
+		}
+		archetype.changed(entity.getID(), archetype.indexOf(component.getClass()));
+		return previous;
+	}
+
+	/**
+	 * Stamps the component of the entity as changed, for views filtering on
+	 * {@link View#changed(Class...) changes} to yield it. Components written in
+	 * place, e.g. through their fields or their flat address, are only seen as
+	 * changed once marked.
+	 */
+	public boolean markChanged(Entity entity, Class<?> componentType) {
+		if (entity == null || !validate(entity)) return false;
+		return markChanged(entity.getArchetype(), entity.getID(), componentType);
+	}
+
+	public boolean markChanged(long handle, Class<?> componentType) {
+		int id = m_entityPool.getHandleTable().locate(handle);
+		if ((id & IDFactory.DETACHED_BIT) != 0) {
+			return false;
+		}
+		return markChanged(archetypeOf(id), id, componentType);
+	}
+
+	private boolean markChanged(Archetype archetype, int id, Class<?> componentType) {
+		int index = archetype.length() == 0 ? -1 : archetype.indexOf(componentType);
+		if (index < 0) {
+			return false;
+		}
+		archetype.changed(id, index);
+		return true;
+	}
+
+	/** Returns the tick stamped on the components added or changed now. */
+	int changeTick() {
+		return m_changeTick.get();
+	}
+
+	/**
+	 * Returns the current tick and moves on to the next one, so that the changes
+	 * made from now on are stamped later than the returned tick.
+	 */
+	int advanceChangeTick() {
+		return m_changeTick.getAndIncrement();
+	}
+
 	public Object remove(Entity entity, Class<?> componentType) {
 		if (entity == null || componentType == null) return null;
+
+		SparseSet<?> sparseSet = m_archetypeList.getSparseSet(componentType);
+		if (sparseSet != null) {
+			Object removed = sparseSet.remove(HandleTable.indexOf(entity.getHandle()));
+			if (removed != null) {
+				m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_REMOVE, componentType, entity, removed);
+			}
+			return removed;
+		}
 		
 		Archetype prevArchetype = entity.getArchetype();
-		Object[] entityComponents = entity.getComponents();
 		int prevComponentsLength = prevArchetype.length();
-		if (prevComponentsLength == 0) return null;
-
-		Object[] newComponentArray;
-		Object removed;
-		if (prevComponentsLength == 1) {
-			newComponentArray = null;
-			removed = entityComponents[0];
-		} else {
-			newComponentArray = new Object[prevComponentsLength - 1];
-			int removedIndex = prevArchetype.indexOf(componentType);
-			removed = entityComponents[removedIndex];
-			if (removedIndex > 0) {
-				System.arraycopy(entityComponents, 0, newComponentArray, 0, removedIndex);
-			}
-			if (removedIndex < prevComponentsLength - 1) {
-				System.arraycopy(entityComponents, removedIndex + 1, newComponentArray, removedIndex, prevComponentsLength - (removedIndex + 1));
+		int removedIndex = prevComponentsLength == 0 ? -1 : prevArchetype.indexOf(componentType);
+		if (removedIndex < 0) return null;
+
+		Object removed = prevArchetype.get(entity.getID(), removedIndex);
+		Archetype.Edge edge = prevArchetype.removeEdge(componentType);
+		if (edge == null) {
+			Object[] entityComponents = entity.getComponents();
+			Object[] newComponentArray = null;
+			if (prevComponentsLength > 1) {
+				newComponentArray = new Object[prevComponentsLength - 1];
+				if (removedIndex > 0) {
+					System.arraycopy(entityComponents, 0, newComponentArray, 0, removedIndex);
+				}
+				if (removedIndex < prevComponentsLength - 1) {
+					System.arraycopy(entityComponents, removedIndex + 1, newComponentArray, removedIndex, prevComponentsLength - (removedIndex + 1));
+				}
 			}
+			edge = prevArchetype.cacheRemoveEdge(componentType, m_archetypeList.getOrCreate(newComponentArray));
 		}
-		Archetype archetype = m_archetypeList.getOrCreate(newComponentArray);
-		prevArchetype.detach(entity);
-		archetype.attach(entity, newComponentArray);
+		prevArchetype.move(edge, entity, null);
 		m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_REMOVE, componentType, entity, removed);
 		return removed;
 	}
@@ -263,6 +621,51 @@ public final class Registry implements Closeable {
 		return entity.get(componentType);
 	}
 
+	/**
+	 * Stores the components of the given primitive-only type flat in off-heap
+	 * chunk memory. {@link #get(Entity, Class)} returns a copy of a flat
+	 * component; read and write it in place through the fields of the returned
+	 * layout, at its {@link #address(Entity, Class) address}.
+	 */
+	public <T> FlatLayout<T> registerFlat(Class<T> componentType) {
+		return m_archetypeList.registerFlat(componentType);
+	}
+
+	/**
+	 * Stores the components of the given type in a sparse set keyed by entity
+	 * handle instead of archetype columns, so that adding and removing them does
+	 * not move the entity to another archetype. Views filter on sparse components
+	 * through {@link View#include(Class...)} and {@link View#exclude(Class...)}.
+	 */
+	public <T> SparseSet<T> registerSparse(Class<T> componentType) {
+		return m_archetypeList.registerSparse(componentType);
+	}
+
+	/**
+	 * Shares the components of the given type among the entities holding equal
+	 * values: the entities are grouped by value, each chunk stores the value
+	 * once, and {@link View#forEachSlice(java.util.function.Consumer)} reads it
+	 * once per chunk. Replacing a shared component moves the entity to the
+	 * group of its new value, so the type suits values that rarely change.
+	 */
+	public void registerShared(Class<?> componentType) {
+		m_archetypeList.registerShared(componentType);
+	}
+
+	public long address(Entity entity, Class<?> componentType) {
+		if (entity == null || !validate(entity)) return 0L;
+		Archetype archetype = entity.getArchetype();
+		int index = archetype.length() == 0 ? -1 : archetype.indexOf(componentType);
+		if (index < 0) return 0L;
+		return archetype.address(entity.getID(), index);
+	}
+
+	public void forEachAddress(Class<?> componentType, LongConsumer consumer) {
+		for (Archetype archetype : m_archetypeList.query(new Class<?>[] { componentType }, NO_TYPES).archetypes()) {
+			archetype.forEachAddress(componentType, consumer);
+		}
+	}
+
 	public boolean contains(Entity entity, Class<?> componentType) {
 		if (entity == null) return false;
 		return entity.contains(componentType);
@@ -273,168 +676,218 @@ public final class Registry implements Closeable {
 		return entity.contains(component);
 	}
 
-	public <T> View<View.With1<T>> view(Class<T> componentType) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType);
-		if (nodes == null) return null;
-		return new View.Of1<T>(m_archetypeList, nodes, componentType);
+	/**
+	 * Returns a new view of the entities storing the component type. The view is
+	 * empty rather than null when no entity stores the type yet, and follows the
+	 * archetypes created after it, so a system may keep it across runs.
+	 */
+	public <T> View.Of1<T> view(Class<T> componentType) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType }, NO_TYPES);
+		return new View.Of1<T>(m_archetypeList, query, componentType);
 	}
 
-	public <T1, T2> View<View.With2<T1, T2>> view(Class<T1> componentType1, Class<T2> componentType2) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType1, componentType2);
-		if (nodes == null) return null;
-		return new View.Of2<T1, T2>(m_archetypeList, nodes, componentType1, componentType2);
+	public <T1, T2> View.Of2<T1, T2> view(Class<T1> componentType1, Class<T2> componentType2) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType1, componentType2 }, NO_TYPES);
+		return new View.Of2<T1, T2>(m_archetypeList, query, componentType1, componentType2);
 	}
 
-	public <T1, T2, T3> View<View.With3<T1, T2, T3>> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType1, componentType2, componentType3);
-		if (nodes == null) return null;
-		return new View.Of3<T1, T2, T3>(m_archetypeList, nodes, componentType1, componentType2, componentType3);
+	public <T1, T2, T3> View.Of3<T1, T2, T3> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType1, componentType2, componentType3 }, NO_TYPES);
+		return new View.Of3<T1, T2, T3>(m_archetypeList, query, componentType1, componentType2, componentType3);
 	}
 
-	public <T1, T2, T3, T4> View<View.With4<T1, T2, T3, T4>> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType1, componentType2, componentType3, componentType4);
-		if (nodes == null) return null;
-		return new View.Of4<T1, T2, T3, T4>(m_archetypeList, nodes, componentType1, componentType2, componentType3, componentType4);
+	public <T1, T2, T3, T4> View.Of4<T1, T2, T3, T4> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType1, componentType2, componentType3, componentType4 }, NO_TYPES);
+		return new View.Of4<T1, T2, T3, T4>(m_archetypeList, query, componentType1, componentType2, componentType3, componentType4);
 	}
 
-	public <T1, T2, T3, T4, T5> View<View.With5<T1, T2, T3, T4, T5>> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType1, componentType2, componentType3, componentType4, componentType5);
-		if (nodes == null) return null;
-		return new View.Of5<T1, T2, T3, T4, T5>(m_archetypeList, nodes, componentType1, componentType2, componentType3, componentType4, componentType5);
+	public <T1, T2, T3, T4, T5> View.Of5<T1, T2, T3, T4, T5> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType1, componentType2, componentType3, componentType4, componentType5 }, NO_TYPES);
+		return new View.Of5<T1, T2, T3, T4, T5>(m_archetypeList, query, componentType1, componentType2, componentType3, componentType4, componentType5);
 	}
 
-	public <T1, T2, T3, T4, T5, T6> View<View.With6<T1, T2, T3, T4, T5, T6>> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5, Class<T6> componentType6) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType1, componentType2, componentType3, componentType4, componentType5, componentType6);
-		if (nodes == null) return null;
-		return new View.Of6<T1, T2, T3, T4, T5, T6>(m_archetypeList, nodes, componentType1, componentType2, componentType3, componentType4, componentType5, componentType6);
+	public <T1, T2, T3, T4, T5, T6> View.Of6<T1, T2, T3, T4, T5, T6> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5, Class<T6> componentType6) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType1, componentType2, componentType3, componentType4, componentType5, componentType6 }, NO_TYPES);
+		return new View.Of6<T1, T2, T3, T4, T5, T6>(m_archetypeList, query, componentType1, componentType2, componentType3, componentType4, componentType5, componentType6);
 	}
 
-	public <T1, T2, T3, T4, T5, T6, T7> View<View.With7<T1, T2, T3, T4, T5, T6, T7>> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5, Class<T6> componentType6, Class<T7> componentType7) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7);
-		if (nodes == null) return null;
-		return new View.Of7<T1, T2, T3, T4, T5, T6, T7>(m_archetypeList, nodes, componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7);
+	public <T1, T2, T3, T4, T5, T6, T7> View.Of7<T1, T2, T3, T4, T5, T6, T7> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5, Class<T6> componentType6, Class<T7> componentType7) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7 }, NO_TYPES);
+		return new View.Of7<T1, T2, T3, T4, T5, T6, T7>(m_archetypeList, query, componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7);
 	}
 
-	public <T1, T2, T3, T4, T5, T6, T7, T8> View<View.With8<T1, T2, T3, T4, T5, T6, T7, T8>> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5, Class<T6> componentType6, Class<T7> componentType7, Class<T8> componentType8) {
-		Map<ClassIndex, Node> nodes = m_archetypeList.find(componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7, componentType8);
-		if (nodes == null) return null;
-		return new View.Of8<T1, T2, T3, T4, T5, T6, T7, T8>(m_archetypeList, nodes, componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7, componentType8);
+	public <T1, T2, T3, T4, T5, T6, T7, T8> View.Of8<T1, T2, T3, T4, T5, T6, T7, T8> view(Class<T1> componentType1, Class<T2> componentType2, Class<T3> componentType3, Class<T4> componentType4, Class<T5> componentType5, Class<T6> componentType6, Class<T7> componentType7, Class<T8> componentType8) {
+		Query query = m_archetypeList.query(new Class<?>[] { componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7, componentType8 }, NO_TYPES);
+		return new View.Of8<T1, T2, T3, T4, T5, T6, T7, T8>(m_archetypeList, query, componentType1, componentType2, componentType3, componentType4, componentType5, componentType6, componentType7, componentType8);
 	}
 
 	public <T> void clear(View.Of1<T> view) {
-		view.stream().forEach(v -> remove(v.entity(), v.component().getClass()));
+		clearAll(view);
 	}
 
 	public <T1, T2> void clear(View.Of2<T1, T2> view) {
-		view.stream().forEach(v -> {
-			remove(v.entity(), v.component1().getClass());
-			remove(v.entity(), v.component2().getClass());
-		});
+		clearAll(view);
 	}
 
 	public <T1, T2, T3> void clear(View.Of3<T1, T2, T3> view) {
-		view.stream().forEach(v -> {
-			remove(v.entity(), v.component1().getClass());
-			remove(v.entity(), v.component2().getClass());
-			remove(v.entity(), v.component3().getClass());
-		});
+		clearAll(view);
 	}
 
 	public <T1, T2, T3, T4> void clear(View.Of4<T1, T2, T3, T4> view) {
-		view.stream().forEach(v -> {
-			remove(v.entity(), v.component1().getClass());
-			remove(v.entity(), v.component2().getClass());
-			remove(v.entity(), v.component3().getClass());
-			remove(v.entity(), v.component4().getClass());
-		});
+		clearAll(view);
 	}
 
 	public <T1, T2, T3, T4, T5> void clear(View.Of5<T1, T2, T3, T4, T5> view) {
-		view.stream().forEach(v -> {
-			remove(v.entity(), v.component1().getClass());
-			remove(v.entity(), v.component2().getClass());
-			remove(v.entity(), v.component3().getClass());
-			remove(v.entity(), v.component4().getClass());
-			remove(v.entity(), v.component5().getClass());
-		});
+		clearAll(view);
 	}
 
 	public <T1, T2, T3, T4, T5, T6> void clear(View.Of6<T1, T2, T3, T4, T5, T6> view) {
-		view.stream().forEach(v -> {
-			remove(v.entity(), v.component1().getClass());
-			remove(v.entity(), v.component2().getClass());
-			remove(v.entity(), v.component3().getClass());
-			remove(v.entity(), v.component4().getClass());
-			remove(v.entity(), v.component5().getClass());
-			remove(v.entity(), v.component6().getClass());
-		});
+		clearAll(view);
 	}
 
 	public <T1, T2, T3, T4, T5, T6, T7> void clear(View.Of7<T1, T2, T3, T4, T5, T6, T7> view) {
-		view.stream().forEach(v -> {
-			remove(v.entity(), v.component1().getClass());
-			remove(v.entity(), v.component2().getClass());
-			remove(v.entity(), v.component3().getClass());
-			remove(v.entity(), v.component4().getClass());
-			remove(v.entity(), v.component5().getClass());
-			remove(v.entity(), v.component6().getClass());
-			remove(v.entity(), v.component7().getClass());
-		});
+		clearAll(view);
 	}
 
 	public <T1, T2, T3, T4, T5, T6, T7, T8> void clear(View.Of8<T1, T2, T3, T4, T5, T6, T7, T8> view) {
-		view.stream().forEach(v -> {
-			remove(v.entity(), v.component1().getClass());
-			remove(v.entity(), v.component2().getClass());
-			remove(v.entity(), v.component3().getClass());
-			remove(v.entity(), v.component4().getClass());
-			remove(v.entity(), v.component5().getClass());
-			remove(v.entity(), v.component6().getClass());
-			remove(v.entity(), v.component7().getClass());
-			remove(v.entity(), v.component8().getClass());
-		});
+		clearAll(view);
 	}
 
 	public <T> boolean destroy(View.Of1<T> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
 	public <T1, T2> boolean destroy(View.Of2<T1, T2> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
 	public <T1, T2, T3> boolean destroy(View.Of3<T1, T2, T3> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
 	public <T1, T2, T3, T4> boolean destroy(View.Of4<T1, T2, T3, T4> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
 	public <T1, T2, T3, T4, T5> boolean destroy(View.Of5<T1, T2, T3, T4, T5> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
 	public <T1, T2, T3, T4, T5, T6> boolean destroy(View.Of6<T1, T2, T3, T4, T5, T6> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
 	public <T1, T2, T3, T4, T5, T6, T7> boolean destroy(View.Of7<T1, T2, T3, T4, T5, T6, T7> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
 	public <T1, T2, T3, T4, T5, T6, T7, T8> boolean destroy(View.Of8<T1, T2, T3, T4, T5, T6, T7, T8> view) {
-		view.stream().forEach(v -> destroy(v.entity()));
+		destroyAll(view);
 		return true;
 	}
 
+	private void clearAll(View<?> view) {
+		Class<?>[] viewTypes = view.componentTypes();
+		View.RowFilter filter = view.filter();
+		boolean rowWise = filter != null;
+		for (Class<?> viewType : viewTypes) {
+			rowWise |= m_archetypeList.getSparseSet(viewType) != null;
+		}
+		for (Archetype archetype : view.archetypes()) {
+			if (rowWise || archetype.hasSharedComponents()) {
+				for (long handle : matchingHandles(archetype, filter)) {
+					Entity entity = resolve(handle);
+					for (Class<?> viewType : viewTypes) {
+						remove(entity, viewType);
+					}
+				}
+				continue;
+			}
+			Class<?>[] componentTypes = archetype.getComponentTypes();
+			List<Class<?>> keptTypes = new ArrayList<Class<?>>(componentTypes.length);
+			List<Class<?>> removedTypes = new ArrayList<Class<?>>(viewTypes.length);
+			for (Class<?> componentType : componentTypes) {
+				if (Arrays.asList(viewTypes).contains(componentType)) {
+					removedTypes.add(componentType);
+				} else {
+					keptTypes.add(componentType);
+				}
+			}
+			if (removedTypes.isEmpty()) {
+				continue;
+			}
+			List<Runnable> events = removedEvents(archetype, removedTypes);
+			archetype.moveAll(m_archetypeList.getOrCreate(keptTypes.toArray(new Class<?>[keptTypes.size()])));
+			events.forEach(Runnable::run);
+		}
+	}
+
+	private List<Runnable> removedEvents(Archetype archetype, List<Class<?>> removedTypes) {
+		List<Runnable> events = new ArrayList<Runnable>();
+		for (Class<?> removedType : removedTypes) {
+			if (!m_eventSink.isConnected(EventSink.ListenerType.ON_COMPONENT_REMOVE, removedType)) {
+				continue;
+			}
+			int index = archetype.indexOf(removedType);
+			for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+				int size = chunk.size();
+				for (int row = 0; row < size; row++) {
+					Entity entity = archetype.materialize(chunk.idOf(row));
+					Object removed = archetype.get(entity.getID(), index);
+					events.add(() -> m_eventSink.emit(EventSink.ListenerType.ON_COMPONENT_REMOVE, removedType, entity, removed));
+				}
+			}
+		}
+		return events;
+	}
+
+	private void destroyAll(View<?> view) {
+		View.RowFilter filter = view.filter();
+		for (Archetype archetype : view.archetypes()) {
+			if (filter == null) {
+				if (m_hierarchy != null) {
+					for (long handle : matchingHandles(archetype, null)) {
+						releaseHierarchy(handle);
+					}
+				}
+				archetype.destroyAll();
+				continue;
+			}
+			for (long handle : matchingHandles(archetype, filter)) {
+				destroy(handle);
+			}
+		}
+	}
+
+	private static long[] matchingHandles(Archetype archetype, View.RowFilter filter) {
+		View.RowFilter rows = filter == null ? null : filter.bind(archetype);
+		long[] handles = new long[16];
+		int count = 0;
+		for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+			if (rows != null && rows.skips(chunk)) {
+				continue;
+			}
+			int size = chunk.size();
+			for (int row = 0; row < size; row++) {
+				if (rows != null && !rows.test(chunk, row)) {
+					continue;
+				}
+				if (count == handles.length) {
+					handles = Arrays.copyOf(handles, count << 1);
+				}
+				handles[count++] = chunk.getHandle(row);
+			}
+		}
+		return Arrays.copyOf(handles, count);
+	}
+
 	public <T> boolean release(View.Of1<T> view) {
 		view.stream().forEach(v -> release(v.entity()));
 		return true;
@@ -475,22 +928,114 @@ public final class Registry implements Closeable {
 		return true;
 	}
 
+	/**
+	 * Stores the resource as the singleton of its class, replacing the previous
+	 * one. Resources are kept in an array indexed by the class index of their
+	 * type, so that {@link #getResource(Class)} is a single array load.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T setResource(T resource) {
+		return setResource((Class<T>) resource.getClass(), resource);
+	}
+
+	public <T> T setResource(Class<T> type, T resource) {
+		int index = m_archetypeList.getClassMap().indexOfOrAdd(type);
+		synchronized (this) {
+			Object[] resources = m_resources;
+			Object previous = index < resources.length ? resources[index] : null;
+			resources = Arrays.copyOf(resources, Math.max(resources.length, index + 1));
+			resources[index] = resource;
+			m_resources = resources;
+			return type.isInstance(previous) ? type.cast(previous) : null;
+		}
+	}
+
+	public <T> T getResource(Class<T> type) {
+		Object[] resources = m_resources;
+		int index = m_archetypeList.getClassMap().indexOf(type);
+		Object resource = index > 0 && index < resources.length ? resources[index] : null;
+		return type.isInstance(resource) ? type.cast(resource) : null;
+	}
+
+	public boolean hasResource(Class<?> type) {
+		return getResource(type) != null;
+	}
+
+	public <T> T removeResource(Class<T> type) {
+		return setResource(type, null);
+	}
+
 	public EventSink eventSink() {
 		return m_eventSink;
 	}
 
+	/**
+	 * Returns the index of the parent/child relationships declared by the
+	 * {@link Parent} components, created and filled from the existing components
+	 * on first call. The index follows the parent components added, replaced
+	 * through {@link #replace(Entity, Object)} and removed from then on.
+	 */
+	public Hierarchy getHierarchy() {
+		Hierarchy hierarchy = m_hierarchy;
+		if (hierarchy != null) {
+			return hierarchy;
+		}
+		synchronized (this) {
+			if (m_hierarchy != null) {
+				return m_hierarchy;
+			}
+			Hierarchy index = new Hierarchy(this);
+			EventSink.ComponentEvent link = (entity, parent) -> index.link(entity.getHandle(), ((Parent) parent).handle());
+			m_eventSink.connect(EventSink.ListenerType.ON_COMPONENT_ADD, Parent.class, link);
+			m_eventSink.connect(EventSink.ListenerType.ON_COMPONENT_REPLACE, Parent.class, link);
+			m_eventSink.connect(EventSink.ListenerType.ON_COMPONENT_REMOVE, Parent.class, (entity, parent) -> index.unlink(entity.getHandle()));
+			m_eventSink.connect(EventSink.ListenerType.ON_BATCH_ADD, Parent.class, (entity, batch) -> {
+				for (long handle : ((EventSink.Batch) batch).handles()) {
+					Parent parent = get(handle, Parent.class);
+					if (parent != null) {
+						index.link(handle, parent.handle());
+					}
+				}
+			});
+			for (View.With1<Parent> with : view(Parent.class)) {
+				index.link(with.entity().getHandle(), with.component().handle());
+			}
+			m_hierarchy = index;
+			return index;
+		}
+	}
+
 	public Scheduler createScheduler() {
 		Scheduler scheduler = new Scheduler(this, m_systemTimeoutSeconds);
 		m_schedulers.push(scheduler);
 		return scheduler;
 	}
 
+	/**
+	 * Creates a buffer for structural changes to be played back at a sync point,
+	 * e.g. after a view has been iterated.
+	 */
+	public CommandBuffer createCommandBuffer() {
+		return new CommandBuffer(this);
+	}
+
+	/**
+	 * Merges sparsely filled chunks of every archetype, returning the emptied
+	 * chunks to the pool. Entity IDs may change; handles stay valid.
+	 */
+	public int compact() {
+		return m_entityPool.compact();
+	}
+
 	@Override
 	public void close() {
 		m_schedulers.stream().forEach(Scheduler::close);
 		m_eventSink.clear();
 		m_archetypeList.close();
 		m_entityPool.close();
+		if (m_mappedStorage != null) {
+			m_mappedStorage.close();
+		}
 	}
 
 	public ChunkedPool<Entity> getEntityPool() {
@@ -513,6 +1058,10 @@ public final class Registry implements Closeable {
 		return m_gsonBuilder;
 	}
 
+	public MappedStorage getMappedStorage() {
+		return m_mappedStorage;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
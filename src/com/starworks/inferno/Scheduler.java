@@ -134,6 +134,13 @@ public class Scheduler implements Closeable {
 		}
 	}
 
+	/**
+	 * Runs the task on the work-stealing pool and waits for it, from any thread.
+	 */
+	void invoke(ForkJoinTask<?> task) {
+		m_workStealExecutor.invoke(task);
+	}
+
 	public void suspend(Runnable system) {
 		Single singleTask = m_taskMap.get(system);
 		if (singleTask == null) {
@@ -1,55 +1,258 @@
 package com.starworks.inferno;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-import com.starworks.inferno.collections.ClassMap.ClassIndex;
+import com.starworks.inferno.collections.ChunkedPool.Chunk;
+import com.starworks.inferno.collections.Column;
+import com.starworks.inferno.collections.SharedColumn;
+import com.starworks.inferno.collections.SparseSet;
 
 public abstract class View<T> implements Iterable<T> {
 
-	private final ArchetypeList m_archetypeList;
-	private final Map<ClassIndex, ArchetypeList.Node> m_nodeMap;
+	private static final Class<?>[] NO_TYPES = new Class<?>[0];
 
-	private View(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap) {
+	private final ArchetypeList m_archetypeList;
+	private final Class<?>[] m_componentTypes;
+	private Query m_query;
+	private Class<?>[] m_includedTypes;
+	private Class<?>[] m_excludedTypes;
+	private Class<?>[] m_anyTypes;
+	private SparseFilter m_filter;
+	private Class<?>[] m_changedTypes;
+	private Class<?>[] m_addedTypes;
+	private int m_lastRun;
+
+	private View(ArchetypeList archetypeList, Query query, Class<?>... componentTypes) {
 		this.m_archetypeList = archetypeList;
-		this.m_nodeMap = nodeMap;
+		this.m_componentTypes = componentTypes;
+		this.m_query = query;
+		this.m_includedTypes = componentTypes;
+		this.m_excludedTypes = NO_TYPES;
+		this.m_anyTypes = NO_TYPES;
+		this.m_filter = null;
+		this.m_changedTypes = NO_TYPES;
+		this.m_addedTypes = NO_TYPES;
+		this.m_lastRun = 0;
 	}
 
 	public final View<T> include(Class<?>... componentTypes) {
-		m_archetypeList.include(m_nodeMap, componentTypes);
+		m_includedTypes = union(m_includedTypes, m_archetypeList.withoutSparse(componentTypes));
+		m_query = m_archetypeList.query(m_includedTypes, m_excludedTypes, m_anyTypes);
+		m_filter = SparseFilter.of(m_filter, m_archetypeList, componentTypes, true);
 		return this;
 	}
 	
 	public final View<T> exclude(Class<?>... componentTypes) {
-		m_archetypeList.exclude(m_nodeMap, componentTypes);
+		m_excludedTypes = union(m_excludedTypes, m_archetypeList.withoutSparse(componentTypes));
+		m_query = m_archetypeList.query(m_includedTypes, m_excludedTypes, m_anyTypes);
+		m_filter = SparseFilter.of(m_filter, m_archetypeList, componentTypes, false);
+		return this;
+	}
+
+	/**
+	 * Restricts this view to the entities storing at least one of the component
+	 * types. Each call widens the same group of types rather than adding another.
+	 *
+	 * @throws IllegalArgumentException if one of the types is sparse
+	 */
+	public final View<T> includeAny(Class<?>... componentTypes) {
+		m_anyTypes = union(m_anyTypes, checkNotSparse(componentTypes, "included as one of a group"));
+		m_query = m_archetypeList.query(m_includedTypes, m_excludedTypes, m_anyTypes);
+		return this;
+	}
+
+	/**
+	 * Restricts this view to the entities whose components of each of the types
+	 * were changed or added since the previous run of this view; the first run
+	 * yields every entity. The types are included in the view. Changes made
+	 * during a run, including by the run itself, are yielded by the next one.
+	 * Tags and shared components store no value per row and are tracked per
+	 * chunk instead: a change to one row yields every row of its chunk.
+	 *
+	 * <p>
+	 * The tick of the previous run is kept by the view, so a system filtering on
+	 * changes keeps its view across runs. A system that builds a new view for
+	 * each run carries the tick over with {@link #lastRun()} and
+	 * {@link #since(int)}.
+	 *
+	 * @throws IllegalArgumentException if one of the types is sparse
+	 */
+	public final View<T> changed(Class<?>... componentTypes) {
+		m_changedTypes = union(m_changedTypes, checkNotSparse(componentTypes, "filtered on changes"));
+		return include(componentTypes);
+	}
+
+	/**
+	 * Restricts this view to the entities whose components of each of the types
+	 * were added since the previous run of this view.
+	 *
+	 * @throws IllegalArgumentException if one of the types is sparse
+	 * @see #changed(Class...)
+	 */
+	public final View<T> added(Class<?>... componentTypes) {
+		m_addedTypes = union(m_addedTypes, checkNotSparse(componentTypes, "filtered on changes"));
+		return include(componentTypes);
+	}
+
+	/**
+	 * Returns the tick at which the latest run of this view filtering on changes
+	 * started, or 0 if it has not run yet.
+	 */
+	public final int lastRun() {
+		return m_lastRun;
+	}
+
+	/**
+	 * Makes the next run of this view yield the changes stamped since the tick,
+	 * usually the {@link #lastRun()} of a view previously used by the same
+	 * system. A tick of 0 yields every entity.
+	 */
+	public final View<T> since(int tick) {
+		m_lastRun = tick;
 		return this;
 	}
 
-	protected abstract Iterator<T> archetypeIterator(Archetype archetype);
+	private Class<?>[] checkNotSparse(Class<?>[] componentTypes, String use) {
+		for (Class<?> componentType : componentTypes) {
+			if (m_archetypeList.getSparseSet(componentType) != null) {
+				throw new IllegalArgumentException("Sparse component type " + componentType.getName() + " cannot be " + use);
+			}
+		}
+		return componentTypes;
+	}
+
+	private static Class<?>[] union(Class<?>[] types, Class<?>[] others) {
+		Class<?>[] union = types;
+		for (Class<?> other : others) {
+			if (!Arrays.asList(union).contains(other)) {
+				union = Arrays.copyOf(union, union.length + 1);
+				union[union.length - 1] = other;
+			}
+		}
+		return union;
+	}
+
+	/**
+	 * Starts a run of this view and returns the filter of its rows, or null if
+	 * the view filters none. A view filtering on changes moves on to the next
+	 * tick for each run, so that a run yields the changes stamped since the
+	 * previous one started.
+	 */
+	final RowFilter filter() {
+		if (m_changedTypes.length == 0 && m_addedTypes.length == 0) {
+			return m_filter == null ? null : new RowFilter(m_filter, NO_TYPES, NO_TYPES, 0);
+		}
+		int since = m_lastRun;
+		m_lastRun = m_archetypeList.getRegistry().advanceChangeTick();
+		return new RowFilter(m_filter, m_changedTypes, m_addedTypes, since);
+	}
+
+	final Class<?>[] componentTypes() {
+		return m_componentTypes;
+	}
+
+	/**
+	 * Returns the query of the archetypes matched by this view, which follows the
+	 * archetypes created after the view.
+	 */
+	public final Query query() {
+		return m_query;
+	}
+
+	/** Returns a snapshot of the archetypes matched by this view. */
+	final List<Archetype> archetypes() {
+		return Arrays.asList(m_query.archetypes());
+	}
+
+	/**
+	 * Performs the action for each non-empty chunk matched by this view, leaving
+	 * out the chunks without changes when the view filters on them. The slice
+	 * passed to the action is reused from one chunk to the next, and reads the
+	 * shared components of the chunk once for all of its rows.
+	 */
+	public final void forEachSlice(Consumer<Slice> action) {
+		RowFilter filter = filter();
+		Slice slice = new Slice();
+		for (Archetype archetype : archetypes()) {
+			RowFilter rows = filter == null ? null : filter.bind(archetype);
+			for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+				if (chunk.size() == 0 || (rows != null && rows.skips(chunk))) {
+					continue;
+				}
+				slice.m_archetype = archetype;
+				slice.m_filter = rows;
+				slice.m_chunk = chunk;
+				action.accept(slice);
+			}
+		}
+	}
+
+	protected abstract Iterator<T> archetypeIterator(Archetype archetype, RowFilter filter);
+
+	/** Returns the entity at the row of the chunk, materializing it if needed. */
+	static Entity entity(Archetype archetype, Chunk<Entity> chunk, int row) {
+		Entity entity = chunk.getEntry(row);
+		return entity != null ? entity : archetype.materialize(chunk.idOf(row));
+	}
 
 	@Override
 	public final Iterator<T> iterator() {
-		Iterator<ArchetypeList.Node> iterator;
-		return m_nodeMap != null ?
-					(m_nodeMap.size() > 1 ?
-						new EntityTupleIterator<T>(this, m_nodeMap.values().iterator()) :
-							(iterator = m_nodeMap.values().iterator()).hasNext() ?
-								archetypeIterator(iterator.next().getArchetype()) :
-									new IteratorWith0<T>()) :
-										new IteratorWith0<T>();
+		Archetype[] archetypes = m_query.archetypes();
+		RowFilter filter = filter();
+		return archetypes.length > 1 ?
+					new EntityTupleIterator<T>(this, filter, Arrays.asList(archetypes).iterator()) :
+						archetypes.length == 1 ?
+							archetypeIterator(archetypes[0], filter) :
+								new IteratorWith0<T>();
 	}
 
 	public final Stream<T> stream() {
 		return StreamSupport.stream(spliterator(), false);
 	}
-	
+
+	public final Stream<T> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * Returns a spliterator over the rows of the non-empty chunks matched by this
+	 * view when it is called. It splits at chunk boundaries first and then within
+	 * a chunk, and is sized unless the view filters on sparse components or
+	 * changes. The chunks without changes are left out of the snapshot.
+	 */
 	@Override
 	public final Spliterator<T> spliterator() {
-		return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+		List<Archetype> archetypes = archetypes();
+		RowFilter filter = filter();
+		List<Archetype> owners = new ArrayList<Archetype>();
+		List<Chunk<Entity>> chunks = new ArrayList<Chunk<Entity>>();
+		for (Archetype archetype : archetypes) {
+			RowFilter rows = filter == null ? null : filter.bind(archetype);
+			for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+				if (chunk.size() > 0 && (rows == null || !rows.skips(chunk))) {
+					owners.add(archetype);
+					chunks.add(chunk);
+				}
+			}
+		}
+		long[] offsets = new long[chunks.size() + 1];
+		for (int i = 0; i < chunks.size(); i++) {
+			offsets[i + 1] = offsets[i] + chunks.get(i).size();
+		}
+		return new ViewSpliterator<T>(this, filter, owners.toArray(new Archetype[owners.size()]), chunks.toArray(newChunkArray(chunks.size())), offsets, 0L, offsets[offsets.length - 1]);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Chunk<Entity>[] newChunkArray(int length) {
+		return new Chunk[length];
 	}
 
 	public record With1<T>(T component, Entity entity) {
@@ -76,19 +279,112 @@ public abstract class View<T> implements Iterable<T> {
 	public record With8<T1, T2, T3, T4, T5, T6, T7, T8>(T1 component1, T2 component2, T3 component3, T4 component4, T5 component5, T6 component6, T7 component7, T8 component8, Entity entity) {
 	}
 
+	/**
+	 * The actions of {@code forEach} and {@code forEachWithEntity}, which take the
+	 * components of each row straight from the columns instead of a tuple.
+	 */
+	@FunctionalInterface
+	public interface Consumer1<T1> {
+		void accept(T1 t1);
+	}
+
+	@FunctionalInterface
+	public interface Consumer2<T1, T2> {
+		void accept(T1 t1, T2 t2);
+	}
+
+	@FunctionalInterface
+	public interface Consumer3<T1, T2, T3> {
+		void accept(T1 t1, T2 t2, T3 t3);
+	}
+
+	@FunctionalInterface
+	public interface Consumer4<T1, T2, T3, T4> {
+		void accept(T1 t1, T2 t2, T3 t3, T4 t4);
+	}
+
+	@FunctionalInterface
+	public interface Consumer5<T1, T2, T3, T4, T5> {
+		void accept(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5);
+	}
+
+	@FunctionalInterface
+	public interface Consumer6<T1, T2, T3, T4, T5, T6> {
+		void accept(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5, T6 t6);
+	}
+
+	@FunctionalInterface
+	public interface Consumer7<T1, T2, T3, T4, T5, T6, T7> {
+		void accept(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5, T6 t6, T7 t7);
+	}
+
+	@FunctionalInterface
+	public interface Consumer8<T1, T2, T3, T4, T5, T6, T7, T8> {
+		void accept(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5, T6 t6, T7 t7, T8 t8);
+	}
+
+	@FunctionalInterface
+	public interface Consumer9<T1, T2, T3, T4, T5, T6, T7, T8, T9> {
+		void accept(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5, T6 t6, T7 t7, T8 t8, T9 t9);
+	}
+
 	public static final class Of1<T> extends View<With1<T>> {
 		
 		private final Class<T> type;
 
-		Of1(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T> type) {
-			super(archetypeList, nodeMap);
+		Of1(ArchetypeList archetypeList, Query query, Class<T> type) {
+			super(archetypeList, query, type);
 			this.type = type;
 		}
 
 		@Override
-		protected Iterator<With1<T>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
-			return new View.IteratorWith1<T>(archetype.indexOf(type), iterator, archetype);
+		protected Iterator<With1<T>> archetypeIterator(Archetype archetype, RowFilter filter) {
+			return new View.IteratorWith1<T>(archetype.indexOf(type), archetype, filter);
+		}
+
+		/**
+		 * Performs the action for each component of the view, without allocating
+		 * a tuple per row. Named apart from {@link #forEach(java.util.function.Consumer)}
+		 * so that lambdas are not ambiguous between the two.
+		 */
+		@SuppressWarnings("unchecked")
+		public void forEachComponent(Consumer1<T> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T) column1.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer2<T, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T) column1.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 
@@ -97,16 +393,59 @@ public abstract class View<T> implements Iterable<T> {
 		private final Class<T1> type1;
 		private final Class<T2> type2;
 
-		Of2(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T1> type1, Class<T2> type2) {
-			super(archetypeList, nodeMap);
+		Of2(ArchetypeList archetypeList, Query query, Class<T1> type1, Class<T2> type2) {
+			super(archetypeList, query, type1, type2);
 			this.type1 = type1;
 			this.type2 = type2;
 		}
 
 		@Override
-		protected Iterator<With2<T1, T2>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
-			return new View.IteratorWith2<T1, T2>(archetype.indexOf(type1), archetype.indexOf(type2), iterator, archetype);
+		protected Iterator<With2<T1, T2>> archetypeIterator(Archetype archetype, RowFilter filter) {
+			return new View.IteratorWith2<T1, T2>(archetype.indexOf(type1), archetype.indexOf(type2), archetype, filter);
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEach(Consumer2<T1, T2> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer3<T1, T2, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 
@@ -116,17 +455,64 @@ public abstract class View<T> implements Iterable<T> {
 		private final Class<T2> type2;
 		private final Class<T3> type3;
 
-		Of3(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T1> type1, Class<T2> type2, Class<T3> type3) {
-			super(archetypeList, nodeMap);
+		Of3(ArchetypeList archetypeList, Query query, Class<T1> type1, Class<T2> type2, Class<T3> type3) {
+			super(archetypeList, query, type1, type2, type3);
 			this.type1 = type1;
 			this.type2 = type2;
 			this.type3 = type3;
 		}
 
 		@Override
-		protected Iterator<With3<T1, T2, T3>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
-			return new View.IteratorWith3<T1, T2, T3>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), iterator, archetype);
+		protected Iterator<With3<T1, T2, T3>> archetypeIterator(Archetype archetype, RowFilter filter) {
+			return new View.IteratorWith3<T1, T2, T3>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), archetype, filter);
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEach(Consumer3<T1, T2, T3> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer4<T1, T2, T3, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 
@@ -137,8 +523,8 @@ public abstract class View<T> implements Iterable<T> {
 		private final Class<T3> type3;
 		private final Class<T4> type4;
 
-		Of4(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
-			super(archetypeList, nodeMap);
+		Of4(ArchetypeList archetypeList, Query query, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
+			super(archetypeList, query, type1, type2, type3, type4);
 			this.type1 = type1;
 			this.type2 = type2;
 			this.type3 = type3;
@@ -146,9 +532,60 @@ public abstract class View<T> implements Iterable<T> {
 		}
 
 		@Override
-		protected Iterator<With4<T1, T2, T3, T4>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
-			return new View.IteratorWith4<T1, T2, T3, T4>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), archetype.indexOf(type4), iterator, archetype);
+		protected Iterator<With4<T1, T2, T3, T4>> archetypeIterator(Archetype archetype, RowFilter filter) {
+			return new View.IteratorWith4<T1, T2, T3, T4>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), archetype.indexOf(type4), archetype, filter);
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEach(Consumer4<T1, T2, T3, T4> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer5<T1, T2, T3, T4, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 
@@ -160,8 +597,8 @@ public abstract class View<T> implements Iterable<T> {
 		private final Class<T4> type4;
 		private final Class<T5> type5;
 
-		Of5(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
-			super(archetypeList, nodeMap);
+		Of5(ArchetypeList archetypeList, Query query, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
+			super(archetypeList, query, type1, type2, type3, type4, type5);
 			this.type1 = type1;
 			this.type2 = type2;
 			this.type3 = type3;
@@ -170,10 +607,65 @@ public abstract class View<T> implements Iterable<T> {
 		}
 
 		@Override
-		protected Iterator<With5<T1, T2, T3, T4, T5>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
+		protected Iterator<With5<T1, T2, T3, T4, T5>> archetypeIterator(Archetype archetype, RowFilter filter) {
 			return new View.IteratorWith5<T1, T2, T3, T4, T5>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), archetype.indexOf(type4),
-															  archetype.indexOf(type5), iterator, archetype);
+															  archetype.indexOf(type5), archetype, filter);
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEach(Consumer5<T1, T2, T3, T4, T5> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer6<T1, T2, T3, T4, T5, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 
@@ -186,8 +678,8 @@ public abstract class View<T> implements Iterable<T> {
 		private final Class<T5> type5;
 		private final Class<T6> type6;
 
-		Of6(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
-			super(archetypeList, nodeMap);
+		Of6(ArchetypeList archetypeList, Query query, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
+			super(archetypeList, query, type1, type2, type3, type4, type5, type6);
 			this.type1 = type1;
 			this.type2 = type2;
 			this.type3 = type3;
@@ -197,10 +689,69 @@ public abstract class View<T> implements Iterable<T> {
 		}
 
 		@Override
-		protected Iterator<With6<T1, T2, T3, T4, T5, T6>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
+		protected Iterator<With6<T1, T2, T3, T4, T5, T6>> archetypeIterator(Archetype archetype, RowFilter filter) {
 			return new View.IteratorWith6<T1, T2, T3, T4, T5, T6>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), archetype.indexOf(type4),
-																  archetype.indexOf(type5), archetype.indexOf(type6), iterator, archetype);
+																  archetype.indexOf(type5), archetype.indexOf(type6), archetype, filter);
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEach(Consumer6<T1, T2, T3, T4, T5, T6> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				int index6 = archetype.indexOf(type6);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					Column column6 = chunk.getColumn(index6);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row), (T6) column6.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer7<T1, T2, T3, T4, T5, T6, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				int index6 = archetype.indexOf(type6);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					Column column6 = chunk.getColumn(index6);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row), (T6) column6.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 
@@ -214,8 +765,8 @@ public abstract class View<T> implements Iterable<T> {
 		private final Class<T6> type6;
 		private final Class<T7> type7;
 
-		Of7(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6, Class<T7> type7) {
-			super(archetypeList, nodeMap);
+		Of7(ArchetypeList archetypeList, Query query, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6, Class<T7> type7) {
+			super(archetypeList, query, type1, type2, type3, type4, type5, type6, type7);
 			this.type1 = type1;
 			this.type2 = type2;
 			this.type3 = type3;
@@ -226,10 +777,73 @@ public abstract class View<T> implements Iterable<T> {
 		}
 
 		@Override
-		protected Iterator<With7<T1, T2, T3, T4, T5, T6, T7>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
+		protected Iterator<With7<T1, T2, T3, T4, T5, T6, T7>> archetypeIterator(Archetype archetype, RowFilter filter) {
 			return new View.IteratorWith7<T1, T2, T3, T4, T5, T6, T7>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), archetype.indexOf(type4),
-																	  archetype.indexOf(type5), archetype.indexOf(type6), archetype.indexOf(type7), iterator, archetype);
+																	  archetype.indexOf(type5), archetype.indexOf(type6), archetype.indexOf(type7), archetype, filter);
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEach(Consumer7<T1, T2, T3, T4, T5, T6, T7> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				int index6 = archetype.indexOf(type6);
+				int index7 = archetype.indexOf(type7);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					Column column6 = chunk.getColumn(index6);
+					Column column7 = chunk.getColumn(index7);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row), (T6) column6.get(row), (T7) column7.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer8<T1, T2, T3, T4, T5, T6, T7, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				int index6 = archetype.indexOf(type6);
+				int index7 = archetype.indexOf(type7);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					Column column6 = chunk.getColumn(index6);
+					Column column7 = chunk.getColumn(index7);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row), (T6) column6.get(row), (T7) column7.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 
@@ -244,8 +858,8 @@ public abstract class View<T> implements Iterable<T> {
 		private final Class<T7> type7;
 		private final Class<T8> type8;
 
-		Of8(ArchetypeList archetypeList, Map<ClassIndex, ArchetypeList.Node> nodeMap, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6, Class<T7> type7, Class<T8> type8) {
-			super(archetypeList, nodeMap);
+		Of8(ArchetypeList archetypeList, Query query, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6, Class<T7> type7, Class<T8> type8) {
+			super(archetypeList, query, type1, type2, type3, type4, type5, type6, type7, type8);
 			this.type1 = type1;
 			this.type2 = type2;
 			this.type3 = type3;
@@ -257,30 +871,105 @@ public abstract class View<T> implements Iterable<T> {
 		}
 
 		@Override
-		protected Iterator<With8<T1, T2, T3, T4, T5, T6, T7, T8>> archetypeIterator(Archetype archetype) {
-			Iterator<Entity> iterator = archetype.getAllocator().iterator();
+		protected Iterator<With8<T1, T2, T3, T4, T5, T6, T7, T8>> archetypeIterator(Archetype archetype, RowFilter filter) {
 			return new View.IteratorWith8<T1, T2, T3, T4, T5, T6, T7, T8>(archetype.indexOf(type1), archetype.indexOf(type2), archetype.indexOf(type3), archetype.indexOf(type4),
-																		  archetype.indexOf(type5), archetype.indexOf(type6), archetype.indexOf(type7), archetype.indexOf(type8), iterator, archetype);
+																		  archetype.indexOf(type5), archetype.indexOf(type6), archetype.indexOf(type7), archetype.indexOf(type8), archetype, filter);
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEach(Consumer8<T1, T2, T3, T4, T5, T6, T7, T8> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				int index6 = archetype.indexOf(type6);
+				int index7 = archetype.indexOf(type7);
+				int index8 = archetype.indexOf(type8);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					Column column6 = chunk.getColumn(index6);
+					Column column7 = chunk.getColumn(index7);
+					Column column8 = chunk.getColumn(index8);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row), (T6) column6.get(row), (T7) column7.get(row), (T8) column8.get(row));
+						}
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void forEachWithEntity(Consumer9<T1, T2, T3, T4, T5, T6, T7, T8, Entity> consumer) {
+			RowFilter filter = filter();
+			for (Archetype archetype : query().archetypes()) {
+				RowFilter rows = filter == null ? null : filter.bind(archetype);
+				int index1 = archetype.indexOf(type1);
+				int index2 = archetype.indexOf(type2);
+				int index3 = archetype.indexOf(type3);
+				int index4 = archetype.indexOf(type4);
+				int index5 = archetype.indexOf(type5);
+				int index6 = archetype.indexOf(type6);
+				int index7 = archetype.indexOf(type7);
+				int index8 = archetype.indexOf(type8);
+				for (var chunk = archetype.getAllocator().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+					if (rows != null && rows.skips(chunk)) {
+						continue;
+					}
+					Column column1 = chunk.getColumn(index1);
+					Column column2 = chunk.getColumn(index2);
+					Column column3 = chunk.getColumn(index3);
+					Column column4 = chunk.getColumn(index4);
+					Column column5 = chunk.getColumn(index5);
+					Column column6 = chunk.getColumn(index6);
+					Column column7 = chunk.getColumn(index7);
+					Column column8 = chunk.getColumn(index8);
+					for (int row = 0, size = chunk.size(); row < size; row++) {
+						if (rows == null || rows.test(chunk, row)) {
+							consumer.accept((T1) column1.get(row), (T2) column2.get(row), (T3) column3.get(row), (T4) column4.get(row), (T5) column5.get(row), (T6) column6.get(row), (T7) column7.get(row), (T8) column8.get(row), entity(archetype, chunk, row));
+						}
+					}
+				}
+			}
 		}
 	}
 	
 	private static final class EntityTupleIterator<T> implements Iterator<T> {
 		
 		private final View<T> m_view;
-		private final Iterator<ArchetypeList.Node> m_nodeIterator;
+		private final RowFilter m_filter;
+		private final Iterator<Archetype> m_archetypeIterator;
 		private Iterator<T> m_tupleIterator;
 
-		private EntityTupleIterator(View<T> owner, Iterator<ArchetypeList.Node> nodesIterator) {
+		private EntityTupleIterator(View<T> owner, RowFilter filter, Iterator<Archetype> archetypeIterator) {
 			this.m_view = owner;
-			this.m_nodeIterator = nodesIterator;
-			this.m_tupleIterator = this.m_nodeIterator.hasNext() ?
-							  	owner.archetypeIterator(this.m_nodeIterator.next().getArchetype()) :
+			this.m_filter = filter;
+			this.m_archetypeIterator = archetypeIterator;
+			this.m_tupleIterator = this.m_archetypeIterator.hasNext() ?
+							  	owner.archetypeIterator(this.m_archetypeIterator.next(), filter) :
 								  new IteratorWith0<T>();
 		}
 
 		@Override
 		public boolean hasNext() {
-			return m_tupleIterator.hasNext() || (m_nodeIterator.hasNext() && (m_tupleIterator = m_view.archetypeIterator(m_nodeIterator.next().getArchetype())).hasNext());
+			while (!m_tupleIterator.hasNext()) {
+				if (!m_archetypeIterator.hasNext()) {
+					return false;
+				}
+				m_tupleIterator = m_view.archetypeIterator(m_archetypeIterator.next(), m_filter);
+			}
+			return true;
 		}
 
 		@Override
@@ -289,6 +978,128 @@ public abstract class View<T> implements Iterable<T> {
 		}
 	}
 
+	/**
+	 * Splits the rows of a snapshot of chunks, addressed by their offset in the
+	 * concatenation of the chunks. A split falls on the chunk boundary closest to
+	 * the middle of the range, or in the middle of the rows of the chunk when the
+	 * range lies within a single one.
+	 */
+	private static final class ViewSpliterator<T> implements Spliterator<T> {
+
+		private static final int MIN_SPLIT = 1 << 8;
+
+		private final View<T> m_view;
+		private final RowFilter m_filter;
+		private final Archetype[] m_archetypes;
+		private final Chunk<Entity>[] m_chunks;
+		private final long[] m_offsets;
+		private long m_origin;
+		private final long m_fence;
+		private int m_index;
+		private Archetype m_archetype;
+		private RowFilter m_rows;
+		private ColumnIterator<T> m_reader;
+
+		private ViewSpliterator(View<T> view, RowFilter filter, Archetype[] archetypes, Chunk<Entity>[] chunks, long[] offsets, long origin, long fence) {
+			this.m_view = view;
+			this.m_filter = filter;
+			this.m_archetypes = archetypes;
+			this.m_chunks = chunks;
+			this.m_offsets = offsets;
+			this.m_origin = origin;
+			this.m_fence = fence;
+			this.m_index = -1;
+			this.m_archetype = null;
+			this.m_rows = null;
+			this.m_reader = null;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (m_origin < m_fence) {
+				int row = seek();
+				m_origin++;
+				if (row < m_chunks[m_index].size() && (m_rows == null || m_rows.test(m_chunks[m_index], row))) {
+					action.accept(m_reader.read(row));
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			while (m_origin < m_fence) {
+				int row = seek();
+				Chunk<Entity> chunk = m_chunks[m_index];
+				int end = (int) (Math.min(m_fence, m_offsets[m_index + 1]) - m_offsets[m_index]);
+				m_origin += end - row;
+				end = Math.min(end, chunk.size());
+				ColumnIterator<T> reader = m_reader;
+				RowFilter rows = m_rows;
+				for (; row < end; row++) {
+					if (rows == null || rows.test(chunk, row)) {
+						action.accept(reader.read(row));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Loads the chunk holding the origin and returns the row of the origin.
+		 */
+		@SuppressWarnings("unchecked")
+		private int seek() {
+			if (m_index < 0 || m_origin >= m_offsets[m_index + 1]) {
+				int index = Arrays.binarySearch(m_offsets, m_origin);
+				index = index >= 0 ? index : -index - 2;
+				while (m_offsets[index + 1] <= m_origin) {
+					index++;
+				}
+				if (m_archetypes[index] != m_archetype) {
+					m_archetype = m_archetypes[index];
+					m_rows = m_filter == null ? null : m_filter.bind(m_archetype);
+					m_reader = (ColumnIterator<T>) m_view.archetypeIterator(m_archetype, m_filter);
+				}
+				m_index = index;
+				m_reader.reset(m_chunks[index]);
+			}
+			return (int) (m_origin - m_offsets[m_index]);
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			long origin = m_origin;
+			if (m_fence - origin < MIN_SPLIT << 1) {
+				return null;
+			}
+			long middle = (origin + m_fence) >>> 1;
+			int index = Arrays.binarySearch(m_offsets, middle);
+			if (index < 0) {
+				index = -index - 1;
+				long above = m_offsets[index];
+				long below = m_offsets[index - 1];
+				long boundary = above - middle < middle - below ? above : below;
+				if (boundary - origin >= MIN_SPLIT && m_fence - boundary >= MIN_SPLIT) {
+					middle = boundary;
+				}
+			}
+			m_origin = middle;
+			m_index = -1;
+			return new ViewSpliterator<T>(m_view, m_filter, m_archetypes, m_chunks, m_offsets, origin, middle);
+		}
+
+		@Override
+		public long estimateSize() {
+			return m_fence - m_origin;
+		}
+
+		@Override
+		public int characteristics() {
+			return m_filter == null ? ORDERED | NONNULL | SIZED | SUBSIZED : ORDERED | NONNULL;
+		}
+	}
+
 	static final class IteratorWith0<T> implements Iterator<T> {
 
 		IteratorWith0() {
@@ -305,172 +1116,421 @@ public abstract class View<T> implements Iterable<T> {
 		}
 	}
 
-	static final class IteratorWith1<T> implements Iterator<View.With1<T>> {
+	/**
+	 * The rows of one chunk matched by a view, read column by column. The
+	 * shared components of a chunk hold a single value for all of its rows,
+	 * which {@link #shared(Class)} returns without reading any row.
+	 */
+	public static final class Slice {
+
+		private RowFilter m_filter;
+		private Archetype m_archetype;
+		private Chunk<Entity> m_chunk;
+
+		private Slice() {
+		}
+
+		public int size() {
+			return m_chunk.size();
+		}
+
+		/** Returns the value of the shared component type for every row. */
+		public <S> S shared(Class<S> componentType) {
+			Column column = column(componentType);
+			if (!(column instanceof SharedColumn shared)) {
+				throw new IllegalArgumentException(componentType.getName() + " is not shared");
+			}
+			return componentType.cast(shared.value());
+		}
+
+		/** Returns the column storing the component type in this chunk. */
+		public Column column(Class<?> componentType) {
+			int index = m_archetype.indexOf(componentType);
+			if (index < 0 || index >= m_archetype.length() || m_archetype.getComponentTypes()[index] != componentType) {
+				throw new IllegalArgumentException(componentType.getName() + " is not stored by " + m_archetype);
+			}
+			return m_chunk.getColumn(index);
+		}
+
+		public <C> C get(Class<C> componentType, int row) {
+			return componentType.cast(column(componentType).get(row));
+		}
+
+		public Entity entity(int row) {
+			return View.entity(m_archetype, m_chunk, row);
+		}
+
+		/** Returns whether the row passes the sparse and change filters of the view. */
+		public boolean test(int row) {
+			return m_filter == null || m_filter.test(m_chunk, row);
+		}
+	}
+
+	/**
+	 * Filters the rows of one run of a view, on its sparse components and on the
+	 * change ticks of its changed and added types. The filter is bound to each
+	 * archetype before use, which resolves the columns of the types; a chunk
+	 * whose latest ticks for a column are not newer than the previous run is
+	 * skipped whole.
+	 */
+	static final class RowFilter {
+
+		private static final int[] NO_COLUMNS = new int[0];
+
+		private final SparseFilter m_sparse;
+		private final Class<?>[] m_changedTypes;
+		private final Class<?>[] m_addedTypes;
+		private final int m_since;
+		private final int[] m_changedColumns;
+		private final int[] m_addedColumns;
+
+		private RowFilter(SparseFilter sparse, Class<?>[] changedTypes, Class<?>[] addedTypes, int since) {
+			this(sparse, changedTypes, addedTypes, since, NO_COLUMNS, NO_COLUMNS);
+		}
+
+		private RowFilter(SparseFilter sparse, Class<?>[] changedTypes, Class<?>[] addedTypes, int since, int[] changedColumns, int[] addedColumns) {
+			this.m_sparse = sparse;
+			this.m_changedTypes = changedTypes;
+			this.m_addedTypes = addedTypes;
+			this.m_since = since;
+			this.m_changedColumns = changedColumns;
+			this.m_addedColumns = addedColumns;
+		}
+
+		/** Returns this filter with the columns of the archetype resolved. */
+		RowFilter bind(Archetype archetype) {
+			if (m_changedTypes.length == 0 && m_addedTypes.length == 0) {
+				return this;
+			}
+			return new RowFilter(m_sparse, m_changedTypes, m_addedTypes, m_since, columns(archetype, m_changedTypes), columns(archetype, m_addedTypes));
+		}
+
+		private static int[] columns(Archetype archetype, Class<?>[] componentTypes) {
+			int[] columns = new int[componentTypes.length];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = archetype.indexOf(componentTypes[i]);
+			}
+			return columns;
+		}
+
+		/** Returns whether no row of the chunk can pass the change filters. */
+		boolean skips(Chunk<Entity> chunk) {
+			for (int column : m_changedColumns) {
+				if (!isNewer(chunk.getLastChangedTick(column))) return true;
+			}
+			for (int column : m_addedColumns) {
+				if (!isNewer(chunk.getLastAddedTick(column))) return true;
+			}
+			return false;
+		}
+
+		boolean test(Chunk<Entity> chunk, int row) {
+			for (int column : m_changedColumns) {
+				if (!isNewer(chunk.getChangedTick(row, column))) return false;
+			}
+			for (int column : m_addedColumns) {
+				if (!isNewer(chunk.getAddedTick(row, column))) return false;
+			}
+			return m_sparse == null || m_sparse.test(chunk.getHandleIndex(row));
+		}
+
+		private boolean isNewer(int tick) {
+			return tick - m_since > 0;
+		}
+	}
+
+	/**
+	 * Filters the rows of a view on the components that are stored in sparse
+	 * sets, by the handle index of each row.
+	 */
+	static final class SparseFilter {
+
+		private final SparseSet<?>[] m_included;
+		private final SparseSet<?>[] m_excluded;
+
+		private SparseFilter(SparseSet<?>[] included, SparseSet<?>[] excluded) {
+			this.m_included = included;
+			this.m_excluded = excluded;
+		}
+
+		static SparseFilter of(SparseFilter filter, ArchetypeList archetypeList, Class<?>[] componentTypes, boolean include) {
+			if (!archetypeList.hasSparseSets()) {
+				return filter;
+			}
+			SparseSet<?>[] included = filter == null ? new SparseSet<?>[0] : filter.m_included;
+			SparseSet<?>[] excluded = filter == null ? new SparseSet<?>[0] : filter.m_excluded;
+			boolean changed = false;
+			for (var componentType : componentTypes) {
+				SparseSet<?> sparseSet = archetypeList.getSparseSet(componentType);
+				if (sparseSet == null) continue;
+				if (include) {
+					included = Arrays.copyOf(included, included.length + 1);
+					included[included.length - 1] = sparseSet;
+				} else {
+					excluded = Arrays.copyOf(excluded, excluded.length + 1);
+					excluded[excluded.length - 1] = sparseSet;
+				}
+				changed = true;
+			}
+			return changed ? new SparseFilter(included, excluded) : filter;
+		}
+
+		boolean test(int key) {
+			for (SparseSet<?> sparseSet : m_included) {
+				if (!sparseSet.contains(key)) return false;
+			}
+			for (SparseSet<?> sparseSet : m_excluded) {
+				if (sparseSet.contains(key)) return false;
+			}
+			return true;
+		}
+	}
+
+	private static abstract class ColumnIterator<T> implements Iterator<T> {
 
-		private final int m_index;
-		private final Iterator<Entity> m_iterator;
 		private final Archetype m_archetype;
+		private final RowFilter m_filter;
+		private Chunk<Entity> m_chunk;
+		private int m_row;
+		private int m_capacity;
 
-		IteratorWith1(int index, Iterator<Entity> iterator, Archetype archetype) {
-			this.m_index = index;
-			this.m_iterator = iterator;
+		private ColumnIterator(Archetype archetype, RowFilter filter) {
 			this.m_archetype = archetype;
+			this.m_filter = filter == null ? null : filter.bind(archetype);
+			this.m_chunk = archetype.getAllocator().getFirstChunk();
+			this.m_row = firstRow(m_chunk);
+			this.m_capacity = 0;
+		}
+
+		/**
+		 * Returns the row to start reading the chunk at, past its end if the
+		 * filter skips it whole.
+		 */
+		private int firstRow(Chunk<Entity> chunk) {
+			return chunk != null && m_filter != null && m_filter.skips(chunk) ? chunk.size() : 0;
+		}
+
+		protected abstract void load(Chunk<Entity> chunk);
+
+		/**
+		 * Returns the tuple at the row of the chunk last loaded.
+		 */
+		protected abstract T read(int row);
+
+		/**
+		 * Moves this iterator to the start of the chunk, loading its columns.
+		 */
+		final void reset(Chunk<Entity> chunk) {
+			m_chunk = chunk;
+			m_row = 0;
+			m_capacity = chunk.capacity();
+			load(chunk);
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		public final T next() {
+			return read(nextRow());
+		}
+
+		@Override
+		public final boolean hasNext() {
+			if (m_chunk == null) {
+				return false;
+			}
+			while (m_row >= m_chunk.size() || (m_filter != null && !m_filter.test(m_chunk, m_row))) {
+				if (m_row < m_chunk.size()) {
+					m_row++;
+					continue;
+				}
+				Chunk<Entity> next = m_chunk.getNext();
+				if (next == null) {
+					return false;
+				}
+				m_chunk = next;
+				m_row = firstRow(next);
+				m_capacity = 0;
+			}
+			int capacity = m_chunk.capacity();
+			if (m_capacity != capacity) {
+				load(m_chunk);
+				m_capacity = capacity;
+			}
+			return true;
+		}
+
+		protected final int nextRow() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return m_row++;
+		}
+
+		protected final Entity entity(int row) {
+			return View.entity(m_archetype, m_chunk, row);
+		}
+	}
+
+	static final class IteratorWith1<T> extends ColumnIterator<View.With1<T>> {
+
+		private final int m_index;
+		private Column m_column;
+
+		IteratorWith1(int index, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
+			this.m_index = index;
+		}
+
+		@Override
+		protected void load(Chunk<Entity> chunk) {
+			m_column = chunk.getColumn(m_index);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With1<T> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With1<T>((T) components[m_index], entity);
+		protected View.With1<T> read(int row) {
+			return new View.With1<T>((T) m_column.get(row), entity(row));
 		}
 	}
 
-	static final class IteratorWith2<T1, T2> implements Iterator<View.With2<T1, T2>> {
+	static final class IteratorWith2<T1, T2> extends ColumnIterator<View.With2<T1, T2>> {
 
 		private final int m_index1;
 		private final int m_index2;
-		private final Iterator<Entity> m_iterator;
-		private final Archetype m_archetype;
+		private Column m_column1;
+		private Column m_column2;
 
-		IteratorWith2(int index1, int index2, Iterator<Entity> iterator, Archetype archetype) {
+		IteratorWith2(int index1, int index2, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
 			this.m_index1 = index1;
 			this.m_index2 = index2;
-			this.m_iterator = iterator;
-			this.m_archetype = archetype;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		protected void load(Chunk<Entity> chunk) {
+			m_column1 = chunk.getColumn(m_index1);
+			m_column2 = chunk.getColumn(m_index2);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With2<T1, T2> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With2<T1, T2>((T1) components[m_index1],
-										  (T2) components[m_index2], entity);
+		protected View.With2<T1, T2> read(int row) {
+			return new View.With2<T1, T2>((T1) m_column1.get(row),
+										  (T2) m_column2.get(row), entity(row));
 		}
 	}
 
-	static final class IteratorWith3<T1, T2, T3> implements Iterator<View.With3<T1, T2, T3>> {
+	static final class IteratorWith3<T1, T2, T3> extends ColumnIterator<View.With3<T1, T2, T3>> {
 
 		private final int m_index1;
 		private final int m_index2;
 		private final int m_index3;
-		private final Iterator<Entity> m_iterator;
-		private final Archetype m_archetype;
+		private Column m_column1;
+		private Column m_column2;
+		private Column m_column3;
 
-		IteratorWith3(int index1, int index2, int index3, Iterator<Entity> iterator, Archetype archetype) {
+		IteratorWith3(int index1, int index2, int index3, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
 			this.m_index1 = index1;
 			this.m_index2 = index2;
 			this.m_index3 = index3;
-			this.m_iterator = iterator;
-			this.m_archetype = archetype;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		protected void load(Chunk<Entity> chunk) {
+			m_column1 = chunk.getColumn(m_index1);
+			m_column2 = chunk.getColumn(m_index2);
+			m_column3 = chunk.getColumn(m_index3);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With3<T1, T2, T3> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With3<T1, T2, T3>((T1) components[m_index1],
-											  (T2) components[m_index2],
-											  (T3) components[m_index3], entity);
+		protected View.With3<T1, T2, T3> read(int row) {
+			return new View.With3<T1, T2, T3>((T1) m_column1.get(row),
+											  (T2) m_column2.get(row),
+											  (T3) m_column3.get(row), entity(row));
 		}
 	}
 
-	static final class IteratorWith4<T1, T2, T3, T4> implements Iterator<View.With4<T1, T2, T3, T4>> {
+	static final class IteratorWith4<T1, T2, T3, T4> extends ColumnIterator<View.With4<T1, T2, T3, T4>> {
 
 		private final int m_index1;
 		private final int m_index2;
 		private final int m_index3;
 		private final int m_index4;
-		private final Iterator<Entity> m_iterator;
-		private final Archetype m_archetype;
+		private Column m_column1;
+		private Column m_column2;
+		private Column m_column3;
+		private Column m_column4;
 
-		IteratorWith4(int index1, int index2, int index3, int index4, Iterator<Entity> iterator, Archetype archetype) {
+		IteratorWith4(int index1, int index2, int index3, int index4, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
 			this.m_index1 = index1;
 			this.m_index2 = index2;
 			this.m_index3 = index3;
 			this.m_index4 = index4;
-			this.m_iterator = iterator;
-			this.m_archetype = archetype;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		protected void load(Chunk<Entity> chunk) {
+			m_column1 = chunk.getColumn(m_index1);
+			m_column2 = chunk.getColumn(m_index2);
+			m_column3 = chunk.getColumn(m_index3);
+			m_column4 = chunk.getColumn(m_index4);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With4<T1, T2, T3, T4> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With4<T1, T2, T3, T4>((T1) components[m_index1],
-												  (T2) components[m_index2],
-												  (T3) components[m_index3],
-												  (T4) components[m_index4], entity);
+		protected View.With4<T1, T2, T3, T4> read(int row) {
+			return new View.With4<T1, T2, T3, T4>((T1) m_column1.get(row),
+												  (T2) m_column2.get(row),
+												  (T3) m_column3.get(row),
+												  (T4) m_column4.get(row), entity(row));
 		}
 	}
 
-	static final class IteratorWith5<T1, T2, T3, T4, T5> implements Iterator<View.With5<T1, T2, T3, T4, T5>> {
+	static final class IteratorWith5<T1, T2, T3, T4, T5> extends ColumnIterator<View.With5<T1, T2, T3, T4, T5>> {
 
 		private final int m_index1;
 		private final int m_index2;
 		private final int m_index3;
 		private final int m_index4;
 		private final int m_index5;
-		private final Iterator<Entity> m_iterator;
-		private final Archetype m_archetype;
-
-		IteratorWith5(int index1, int index2, int index3, int index4, int index5, Iterator<Entity> iterator, Archetype archetype) {
+		private Column m_column1;
+		private Column m_column2;
+		private Column m_column3;
+		private Column m_column4;
+		private Column m_column5;
+
+		IteratorWith5(int index1, int index2, int index3, int index4, int index5, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
 			this.m_index1 = index1;
 			this.m_index2 = index2;
 			this.m_index3 = index3;
 			this.m_index4 = index4;
 			this.m_index5 = index5;
-			this.m_iterator = iterator;
-			this.m_archetype = archetype;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		protected void load(Chunk<Entity> chunk) {
+			m_column1 = chunk.getColumn(m_index1);
+			m_column2 = chunk.getColumn(m_index2);
+			m_column3 = chunk.getColumn(m_index3);
+			m_column4 = chunk.getColumn(m_index4);
+			m_column5 = chunk.getColumn(m_index5);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With5<T1, T2, T3, T4, T5> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With5<T1, T2, T3, T4, T5>((T1) components[m_index1],
-													  (T2) components[m_index2],
-													  (T3) components[m_index3],
-													  (T4) components[m_index4],
-													  (T5) components[m_index5], entity);
+		protected View.With5<T1, T2, T3, T4, T5> read(int row) {
+			return new View.With5<T1, T2, T3, T4, T5>((T1) m_column1.get(row),
+													  (T2) m_column2.get(row),
+													  (T3) m_column3.get(row),
+													  (T4) m_column4.get(row),
+													  (T5) m_column5.get(row), entity(row));
 		}
 	}
 
-	static final class IteratorWith6<T1, T2, T3, T4, T5, T6> implements Iterator<View.With6<T1, T2, T3, T4, T5, T6>> {
+	static final class IteratorWith6<T1, T2, T3, T4, T5, T6> extends ColumnIterator<View.With6<T1, T2, T3, T4, T5, T6>> {
 
 		private final int m_index1;
 		private final int m_index2;
@@ -478,41 +1538,46 @@ public abstract class View<T> implements Iterable<T> {
 		private final int m_index4;
 		private final int m_index5;
 		private final int m_index6;
-		private final Iterator<Entity> m_iterator;
-		private final Archetype m_archetype;
-
-		IteratorWith6(int index1, int index2, int index3, int index4, int index5, int index6, Iterator<Entity> iterator, Archetype archetype) {
+		private Column m_column1;
+		private Column m_column2;
+		private Column m_column3;
+		private Column m_column4;
+		private Column m_column5;
+		private Column m_column6;
+
+		IteratorWith6(int index1, int index2, int index3, int index4, int index5, int index6, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
 			this.m_index1 = index1;
 			this.m_index2 = index2;
 			this.m_index3 = index3;
 			this.m_index4 = index4;
 			this.m_index5 = index5;
 			this.m_index6 = index6;
-			this.m_iterator = iterator;
-			this.m_archetype = archetype;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		protected void load(Chunk<Entity> chunk) {
+			m_column1 = chunk.getColumn(m_index1);
+			m_column2 = chunk.getColumn(m_index2);
+			m_column3 = chunk.getColumn(m_index3);
+			m_column4 = chunk.getColumn(m_index4);
+			m_column5 = chunk.getColumn(m_index5);
+			m_column6 = chunk.getColumn(m_index6);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With6<T1, T2, T3, T4, T5, T6> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With6<T1, T2, T3, T4, T5, T6>((T1) components[m_index1],
-														  (T2) components[m_index2],
-														  (T3) components[m_index3],
-														  (T4) components[m_index4],
-														  (T5) components[m_index5],
-														  (T6) components[m_index6], entity);
+		protected View.With6<T1, T2, T3, T4, T5, T6> read(int row) {
+			return new View.With6<T1, T2, T3, T4, T5, T6>((T1) m_column1.get(row),
+														  (T2) m_column2.get(row),
+														  (T3) m_column3.get(row),
+														  (T4) m_column4.get(row),
+														  (T5) m_column5.get(row),
+														  (T6) m_column6.get(row), entity(row));
 		}
 	}
 
-	static final class IteratorWith7<T1, T2, T3, T4, T5, T6, T7> implements Iterator<View.With7<T1, T2, T3, T4, T5, T6, T7>> {
+	static final class IteratorWith7<T1, T2, T3, T4, T5, T6, T7> extends ColumnIterator<View.With7<T1, T2, T3, T4, T5, T6, T7>> {
 
 		private final int m_index1;
 		private final int m_index2;
@@ -521,10 +1586,16 @@ public abstract class View<T> implements Iterable<T> {
 		private final int m_index5;
 		private final int m_index6;
 		private final int m_index7;
-		private final Iterator<Entity> m_iterator;
-		private final Archetype m_archetype;
-
-		IteratorWith7(int index1, int index2, int index3, int index4, int index5, int index6, int index7, Iterator<Entity> iterator, Archetype archetype) {
+		private Column m_column1;
+		private Column m_column2;
+		private Column m_column3;
+		private Column m_column4;
+		private Column m_column5;
+		private Column m_column6;
+		private Column m_column7;
+
+		IteratorWith7(int index1, int index2, int index3, int index4, int index5, int index6, int index7, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
 			this.m_index1 = index1;
 			this.m_index2 = index2;
 			this.m_index3 = index3;
@@ -532,32 +1603,33 @@ public abstract class View<T> implements Iterable<T> {
 			this.m_index5 = index5;
 			this.m_index6 = index6;
 			this.m_index7 = index7;
-			this.m_iterator = iterator;
-			this.m_archetype = archetype;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		protected void load(Chunk<Entity> chunk) {
+			m_column1 = chunk.getColumn(m_index1);
+			m_column2 = chunk.getColumn(m_index2);
+			m_column3 = chunk.getColumn(m_index3);
+			m_column4 = chunk.getColumn(m_index4);
+			m_column5 = chunk.getColumn(m_index5);
+			m_column6 = chunk.getColumn(m_index6);
+			m_column7 = chunk.getColumn(m_index7);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With7<T1, T2, T3, T4, T5, T6, T7> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With7<T1, T2, T3, T4, T5, T6, T7>((T1) components[m_index1],
-															  (T2) components[m_index2],
-															  (T3) components[m_index3],
-															  (T4) components[m_index4],
-															  (T5) components[m_index5],
-															  (T6) components[m_index6],
-															  (T7) components[m_index7], entity);
+		protected View.With7<T1, T2, T3, T4, T5, T6, T7> read(int row) {
+			return new View.With7<T1, T2, T3, T4, T5, T6, T7>((T1) m_column1.get(row),
+															  (T2) m_column2.get(row),
+															  (T3) m_column3.get(row),
+															  (T4) m_column4.get(row),
+															  (T5) m_column5.get(row),
+															  (T6) m_column6.get(row),
+															  (T7) m_column7.get(row), entity(row));
 		}
 	}
 
-	static final class IteratorWith8<T1, T2, T3, T4, T5, T6, T7, T8> implements Iterator<View.With8<T1, T2, T3, T4, T5, T6, T7, T8>> {
+	static final class IteratorWith8<T1, T2, T3, T4, T5, T6, T7, T8> extends ColumnIterator<View.With8<T1, T2, T3, T4, T5, T6, T7, T8>> {
 
 		private final int m_index1;
 		private final int m_index2;
@@ -567,10 +1639,17 @@ public abstract class View<T> implements Iterable<T> {
 		private final int m_index6;
 		private final int m_index7;
 		private final int m_index8;
-		private final Iterator<Entity> m_iterator;
-		private final Archetype m_archetype;
-
-		IteratorWith8(int index1, int index2, int index3, int index4, int index5, int index6, int index7, int index8, Iterator<Entity> iterator, Archetype archetype) {
+		private Column m_column1;
+		private Column m_column2;
+		private Column m_column3;
+		private Column m_column4;
+		private Column m_column5;
+		private Column m_column6;
+		private Column m_column7;
+		private Column m_column8;
+
+		IteratorWith8(int index1, int index2, int index3, int index4, int index5, int index6, int index7, int index8, Archetype archetype, RowFilter filter) {
+			super(archetype, filter);
 			this.m_index1 = index1;
 			this.m_index2 = index2;
 			this.m_index3 = index3;
@@ -579,29 +1658,31 @@ public abstract class View<T> implements Iterable<T> {
 			this.m_index6 = index6;
 			this.m_index7 = index7;
 			this.m_index8 = index8;
-			this.m_iterator = iterator;
-			this.m_archetype = archetype;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return m_iterator.hasNext();
+		protected void load(Chunk<Entity> chunk) {
+			m_column1 = chunk.getColumn(m_index1);
+			m_column2 = chunk.getColumn(m_index2);
+			m_column3 = chunk.getColumn(m_index3);
+			m_column4 = chunk.getColumn(m_index4);
+			m_column5 = chunk.getColumn(m_index5);
+			m_column6 = chunk.getColumn(m_index6);
+			m_column7 = chunk.getColumn(m_index7);
+			m_column8 = chunk.getColumn(m_index8);
 		}
 
 		@Override
 		@SuppressWarnings("unchecked")
-		public View.With8<T1, T2, T3, T4, T5, T6, T7, T8> next() {
-			Entity entity;
-			while ((entity = m_iterator.next()).getArchetype() != m_archetype);
-			Object[] components = entity.getComponents();
-			return new View.With8<T1, T2, T3, T4, T5, T6, T7, T8>((T1) components[m_index1],
-																  (T2) components[m_index2],
-																  (T3) components[m_index3],
-																  (T4) components[m_index4],
-																  (T5) components[m_index5],
-																  (T6) components[m_index6],
-																  (T7) components[m_index7],
-																  (T8) components[m_index8], entity);
+		protected View.With8<T1, T2, T3, T4, T5, T6, T7, T8> read(int row) {
+			return new View.With8<T1, T2, T3, T4, T5, T6, T7, T8>((T1) m_column1.get(row),
+																  (T2) m_column2.get(row),
+																  (T3) m_column3.get(row),
+																  (T4) m_column4.get(row),
+																  (T5) m_column5.get(row),
+																  (T6) m_column6.get(row),
+																  (T7) m_column7.get(row),
+																  (T8) m_column8.get(row), entity(row));
 		}
 	}
 }
@@ -2,11 +2,15 @@ package com.starworks.inferno.collections;
 
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.StampedLock;
 
+import com.starworks.inferno.util.UnsafeSupport;
+
+import sun.misc.Unsafe;
 
 /**
  * <p>
@@ -31,6 +35,10 @@ import java.util.concurrent.locks.StampedLock;
  */
 public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closeable {
 
+	private static final Unsafe unsafe = UnsafeSupport.getUnsafe();
+	private static final long CHUNKS_BASE = unsafe.arrayBaseOffset(Chunk[].class);
+	private static final int CHUNKS_SHIFT = Integer.numberOfTrailingZeros(unsafe.arrayIndexScale(Chunk[].class));
+
 	/**
 	 * 
 	 * The maximum capacity of the ID stack.
@@ -46,12 +54,21 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 	 * The default number of bits to use for representing the chunk count.
 	 */
 	public static final int DEFAULT_CHUNK_COUNT_BIT = 16;
+	/**
+	 * 
+	 * The number of rows allocated for the first chunk of an allocator. The
+	 * storage of a chunk doubles whenever it runs out of rows, up to the chunk
+	 * capacity of the ID factory.
+	 */
+	public static final int INITIAL_CHUNK_CAPACITY = 1 << 4;
 
 	private final IDFactory m_idFactory;
 	private final Chunk<T>[] m_chunks;
 	private int m_currentChunkIndex;
+	private final IntStack m_freeChunkIDs;
 	private final StampedLock m_lock;
 	private final List<Allocator<T>> m_allocators;
+	private final HandleTable m_handleTable;
 
 	/**
 	 * Constructs a new ChunkedPool with default chunk size and chunk count.
@@ -80,8 +97,10 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		this.m_idFactory = new IDFactory(chunkBit, chunkCountBit);
 		this.m_chunks = new Chunk[m_idFactory.getChunkCount()];
 		this.m_currentChunkIndex = -1;
+		this.m_freeChunkIDs = new IntStack(ID_STACK_CAPACITY);
 		this.m_lock = new StampedLock();
 		this.m_allocators = new ArrayList<Allocator<T>>();
+		this.m_handleTable = new HandleTable();
 	}
 
 	/**
@@ -94,19 +113,62 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		return getChunk(id).get(id);
 	}
 
+	/**
+	 * Returns the object in the pool referred to by the specified handle.
+	 *
+	 * @param handle the handle of the object to return.
+	 * @return the object referred to by the handle, or null if the handle is
+	 *         stale or its object is not stored in the pool.
+	 * @see HandleTable
+	 */
+	public T resolve(long handle) {
+		int id = m_handleTable.locate(handle);
+		if ((id & IDFactory.DETACHED_BIT) != 0) {
+			return null;
+		}
+		return get(id);
+	}
+
 	/**
 	 * Creates and returns a new allocator for this pool.
 	 *
 	 * @return a new allocator for this pool.
 	 */
 	public Allocator<T> newAllocator() {
-		Allocator<T> allocator = new Allocator<T>(this, m_chunks);
+		return newAllocator(new Column.Factory[0]);
+	}
+
+	/**
+	 * Creates and returns a new allocator for this pool whose chunks each carry
+	 * the specified number of {@link ObjectColumn object columns} alongside their
+	 * entries.
+	 *
+	 * @param columnCount the number of columns of each chunk of the allocator.
+	 * @return a new allocator for this pool.
+	 */
+	public Allocator<T> newAllocator(int columnCount) {
+		Column.Factory[] columnFactories = new Column.Factory[columnCount];
+		Arrays.fill(columnFactories, ObjectColumn.FACTORY);
+		return newAllocator(columnFactories);
+	}
+
+	/**
+	 * Creates and returns a new allocator for this pool whose chunks each carry
+	 * one column per specified factory alongside their entries.
+	 *
+	 * @param columnFactories the factories of the columns of each chunk.
+	 * @return a new allocator for this pool.
+	 */
+	public Allocator<T> newAllocator(Column.Factory... columnFactories) {
+		Allocator<T> allocator = new Allocator<T>(this, m_chunks, columnFactories);
 		m_allocators.add(allocator);
 		return allocator;
 	}
 
 	/**
 	 * Creates and returns a new chunk with the specified owner and last chunk.
+	 * The new chunk starts with as many rows allocated as the last chunk ended
+	 * up with, or {@link #INITIAL_CHUNK_CAPACITY} rows if it is the first chunk.
 	 *
 	 * @param owner     the owner of the new chunk.
 	 * @param lastChunk the last chunk.
@@ -115,15 +177,20 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 	private Chunk<T> createChunk(Allocator<T> owner, Chunk<T> lastChunk) {
 		long stamp = m_lock.writeLock();
 		try {
-			int id = ++m_currentChunkIndex;
+			int id = m_freeChunkIDs.pop();
+			if (id == Integer.MIN_VALUE) {
+				id = ++m_currentChunkIndex;
+			}
 			if (id > m_idFactory.getChunkCount() - 1) {
 				throw new OutOfMemoryError(ChunkedPool.class.getName() + ": cannot create a new memory chunk");
 			}
-			var newChunk = new Chunk<T>(id, m_idFactory);
+			int capacity = lastChunk == null ? INITIAL_CHUNK_CAPACITY : lastChunk.capacity();
+			var newChunk = new Chunk<T>(id, m_idFactory, owner.m_columnFactories, m_handleTable, capacity);
+			newChunk.m_allocator = owner;
 			if (lastChunk != null) {
 				lastChunk.setNext(newChunk);
 			}
-			m_chunks[id] = newChunk;
+			unsafe.putObjectVolatile(m_chunks, chunkOffset(id), newChunk);
 			return newChunk;
 		} finally {
 			m_lock.unlockWrite(stamp);
@@ -131,23 +198,83 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 	}
 
 	/**
-	 * Returns the specified chunk in the pool.
+	 * Drops the specified chunk from the pool, releasing its columns, so that its
+	 * slot can be reused by a new chunk of any allocator. The dropped chunk keeps
+	 * its link to the next chunk, so that iterators positioned on it skip over it
+	 * rather than stop.
+	 *
+	 * @param chunk the chunk to drop.
+	 */
+	private void dropChunk(Chunk<T> chunk) {
+		long stamp = m_lock.writeLock();
+		try {
+			unsafe.putObjectVolatile(m_chunks, chunkOffset(chunk.m_id), null);
+			chunk.m_index.set(-1);
+			chunk.close();
+			chunk.m_allocator = null;
+			chunk.m_lessee = null;
+			m_freeChunkIDs.push(chunk.m_id);
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the specified chunk in the pool. The lookup is wait-free.
 	 *
 	 * @param id the ID of the chunk to return.
 	 * @return the chunk in the pool with the specified ID.
 	 */
-	private Chunk<T> getChunk(int id) {
-		long stamp = m_lock.tryOptimisticRead();
-		var chunk = m_chunks[m_idFactory.getChunkID(id)];
-		if (!m_lock.validate(stamp)) {
-			stamp = m_lock.readLock();
-			try {
-				chunk = m_chunks[m_idFactory.getChunkID(id)];
-			} finally {
-				m_lock.unlockRead(stamp);
-			}
+	public Chunk<T> getChunk(int id) {
+		return chunkAt(m_idFactory.getChunkID(id));
+	}
+
+	/**
+	 * Returns the chunk in the specified slot of the chunk directory, or null if
+	 * the slot is free. The lookup is wait-free.
+	 */
+	@SuppressWarnings("unchecked")
+	private Chunk<T> chunkAt(int chunkID) {
+		return (Chunk<T>) unsafe.getObjectVolatile(m_chunks, chunkOffset(chunkID));
+	}
+
+	/**
+	 * Returns the offset of the specified slot of the chunk directory. Slots are
+	 * written with volatile stores while holding the write lock of the pool, and
+	 * read with volatile loads without locking, so that looking up a chunk never
+	 * touches the state of the lock.
+	 */
+	private static long chunkOffset(int chunkID) {
+		return CHUNKS_BASE + ((long) chunkID << CHUNKS_SHIFT);
+	}
+
+	/**
+	 * Compacts every allocator of the pool.
+	 *
+	 * @return the number of chunks returned to the pool.
+	 * @see Allocator#compact()
+	 */
+	public int compact() {
+		int dropped = 0;
+		for (Allocator<T> allocator : m_allocators) {
+			dropped += allocator.compact();
+		}
+		return dropped;
+	}
+
+	/**
+	 * Returns the number of chunks currently in use by the allocators of the
+	 * pool.
+	 *
+	 * @return the number of chunks in use.
+	 */
+	public int getChunkCount() {
+		long stamp = m_lock.readLock();
+		try {
+			return m_currentChunkIndex + 1 - m_freeChunkIDs.size();
+		} finally {
+			m_lock.unlockRead(stamp);
 		}
-		return chunk;
 	}
 
 	/**
@@ -158,7 +285,7 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 	public int size() {
 		int size = 0;
 		for (int i = 0; i < m_chunks.length; i++) {
-			var chunk = m_chunks[i];
+			var chunk = chunkAt(i);
 			size += chunk != null ? chunk.size() : 0;
 		}
 		return size;
@@ -175,6 +302,8 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 	@Override
 	public void close() {
 		m_allocators.forEach(Allocator::close);
+		m_handleTable.close();
+		m_freeChunkIDs.close();
 	}
 
 	/**
@@ -186,6 +315,15 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		return m_idFactory;
 	}
 
+	/**
+	 * Returns the table of handles referring to the objects of the pool.
+	 *
+	 * @return the handle table used by the pool.
+	 */
+	public HandleTable getHandleTable() {
+		return m_handleTable;
+	}
+
 	/*
 	 * {@inheritDoc}
 	 */
@@ -198,7 +336,7 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		sb.append("chunks={");
 		int size = m_chunks.length;
 		for (int i = 0; i < size; i++) {
-			var chunk = m_chunks[i];
+			var chunk = chunkAt(i);
 			if (chunk != null) {
 				sb.append(chunk).append(", ");
 			}
@@ -232,27 +370,37 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 	 */
 	public static final class Allocator<T extends Poolable> implements Closeable {
 
+		private static final AtomicInteger SERIALS = new AtomicInteger();
+
 		private final ChunkedPool<T> m_owner;
+		private final int m_serial;
 		private final IntStack m_idStack;
-		private final Chunk<T> m_firstChunk;
+		private Chunk<T> m_firstChunk;
 		private Chunk<T> m_currentChunk;
 		private final StampedLock m_lock;
+		private final Column.Factory[] m_columnFactories;
+		private volatile Object m_attachment;
+		private final ThreadLocal<Chunk<T>> m_leases;
 		private int m_nextID;
 
 		/**
-		 * Constructs a new allocator for the specified pool.
+		 * Constructs a new allocator for the specified pool. No chunk is created
+		 * until the first ID is requested.
 		 *
-		 * @param pool   the pool to allocate objects from.
-		 * @param chunks the chunks in the pool.
+		 * @param pool            the pool to allocate objects from.
+		 * @param chunks          the chunks in the pool.
+		 * @param columnFactories the factories of the columns of each chunk.
 		 */
-		private Allocator(ChunkedPool<T> pool, Chunk<T>[] chunks) {
+		private Allocator(ChunkedPool<T> pool, Chunk<T>[] chunks, Column.Factory[] columnFactories) {
 			this.m_owner = pool;
+			this.m_serial = SERIALS.getAndIncrement();
 			this.m_idStack = new IntStack(ID_STACK_CAPACITY);
-			this.m_currentChunk = pool.createChunk(this, null);
-			this.m_firstChunk = m_currentChunk;
+			this.m_columnFactories = columnFactories;
+			this.m_currentChunk = null;
+			this.m_firstChunk = null;
 			this.m_nextID = IDFactory.DETACHED_BIT;
 			this.m_lock = new StampedLock();
-			nextID();
+			this.m_leases = new ThreadLocal<Chunk<T>>();
 		}
 
 		/**
@@ -267,6 +415,17 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 			return m_owner.getChunk(id).set(id, entry);
 		}
 
+		/**
+		 * Binds the specified handle to the specified ID, so that the handle
+		 * follows the row of the ID as it is moved within its chunk.
+		 *
+		 * @param id     the ID the handle refers to.
+		 * @param handle the handle to bind.
+		 */
+		public void bind(int id, long handle) {
+			m_owner.getChunk(id).bind(id, handle);
+		}
+
 		/**
 		 * Returns the next available ID for an object in the pool.
 		 *
@@ -274,6 +433,13 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		 * It first checks if there are any recycled IDs available, and if not, it
 		 * creates a new ID using the ID factory of the pool.
 		 *
+		 * <p>
+		 * New IDs are normally taken from the current chunk under the write lock.
+		 * When that lock is contended, the calling thread is instead leased a chunk
+		 * of its own, from which it takes its IDs without locking until the chunk
+		 * is full; creation from several threads therefore only synchronizes once
+		 * per chunk.
+		 *
 		 * @return the next available ID for an object in the pool.
 		 */
 		public int nextID() {
@@ -288,13 +454,30 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 				}
 			}
 			if (nextID != IDFactory.DETACHED_BIT) {
-				m_owner.getChunk(nextID).m_index.incrementAndGet();
+				Chunk<T> chunk = m_owner.getChunk(nextID);
+				chunk.ensureCapacity(chunk.m_index.incrementAndGet() + 1);
 				return nextID;
 			}
 
-			stamp = m_lock.writeLock();
+			Chunk<T> lease = m_leases.get();
+			if (lease != null) {
+				nextID = lease.nextLeasedID();
+				if (nextID != IDFactory.DETACHED_BIT) {
+					return nextID;
+				}
+				endLease(lease);
+			}
+
+			stamp = m_lock.tryWriteLock();
+			if (stamp == 0L) {
+				return lease();
+			}
 			try {
+				if (m_currentChunk == null) {
+					start();
+				}
 				nextID = m_nextID;
+				m_currentChunk.ensureCapacity(m_owner.m_idFactory.getObjectID(nextID) + 1);
 				if (m_currentChunk.m_index.get() < m_owner.getIDFactory().getChunkCapacity() - 1) {
 					m_nextID = m_owner.m_idFactory.createID(m_currentChunk.m_id, m_currentChunk.m_index.incrementAndGet());
 					return nextID;
@@ -307,6 +490,237 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 			}
 		}
 
+		/**
+		 * Leases a new chunk to the calling thread and returns its first ID.
+		 *
+		 * <p>
+		 * The leased chunk is linked at the head of the chain, so that it is
+		 * iterated like any other chunk. Rows freed from it are not pushed onto the
+		 * stack of recycled IDs, but reused by the lessee, which always takes the
+		 * row following the last one in use.
+		 */
+		private int lease() {
+			Chunk<T> chunk;
+			long stamp = m_lock.writeLock();
+			try {
+				if (m_currentChunk == null) {
+					start();
+				}
+				chunk = m_owner.createChunk(this, null);
+				chunk.m_next = m_firstChunk;
+				chunk.m_lessee = Thread.currentThread();
+				m_firstChunk = chunk;
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+			m_leases.set(chunk);
+			return chunk.nextLeasedID();
+		}
+
+		/**
+		 * Ends the lease of the specified chunk, handing its free rows over to the
+		 * stack of recycled IDs. Leases revoked by {@link #clear()} or
+		 * {@link #transfer(Allocator, int[])} are just forgotten.
+		 */
+		private void endLease(Chunk<T> chunk) {
+			m_leases.remove();
+			long stamp = m_lock.writeLock();
+			try {
+				if (chunk.m_lessee != Thread.currentThread() || chunk.m_allocator != this) {
+					return;
+				}
+				chunk.m_lessee = null;
+				for (int row = m_owner.m_idFactory.getChunkCapacity() - 1; row >= chunk.size(); row--) {
+					m_idStack.push(chunk.idOf(row));
+				}
+				recycle(chunk);
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Ends the lease of the calling thread, if it holds one, so that the free
+		 * rows of its leased chunk can be reused by other threads. Threads that
+		 * stop creating objects should call this.
+		 */
+		public void releaseLease() {
+			Chunk<T> lease = m_leases.get();
+			if (lease != null) {
+				endLease(lease);
+			}
+		}
+
+		/**
+		 * Reserves a run of consecutive IDs within one chunk, starting at the next
+		 * available ID of the current chunk. Recycled IDs are not used, so that the
+		 * rows of the run are contiguous; a run ends at the end of its chunk, and
+		 * callers needing more IDs reserve again.
+		 *
+		 * @param count the maximum number of IDs to reserve.
+		 * @return the first ID of the run; the run is {@link #runLength(int, int)
+		 *         runLength(first, count)} IDs long.
+		 */
+		public int reserve(int count) {
+			long stamp = m_lock.writeLock();
+			try {
+				if (m_currentChunk == null) {
+					start();
+				}
+				IDFactory idFactory = m_owner.m_idFactory;
+				int first = m_nextID;
+				int row = idFactory.getObjectID(first);
+				int length = Math.min(count, idFactory.getChunkCapacity() - row);
+				m_currentChunk.ensureCapacity(row + length);
+				if (row + length < idFactory.getChunkCapacity()) {
+					m_currentChunk.m_index.addAndGet(length);
+					m_nextID = idFactory.createID(m_currentChunk.m_id, row + length);
+					return first;
+				}
+				m_currentChunk.m_index.set(idFactory.getChunkCapacity() - 1);
+				m_currentChunk = m_owner.createChunk(this, m_currentChunk);
+				m_nextID = idFactory.createID(m_currentChunk.m_id, m_currentChunk.m_index.incrementAndGet());
+				return first;
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Returns the length of the run reserved by {@link #reserve(int)}.
+		 *
+		 * @param first the first ID of the run.
+		 * @param count the number of IDs that were requested.
+		 * @return the number of IDs of the run.
+		 */
+		public int runLength(int first, int count) {
+			IDFactory idFactory = m_owner.m_idFactory;
+			return Math.min(count, idFactory.getChunkCapacity() - idFactory.getObjectID(first));
+		}
+
+		/**
+		 * Binds a run of handles to a run of consecutive IDs within one chunk.
+		 *
+		 * @param first   the first ID of the run.
+		 * @param handles the handles to bind.
+		 * @param offset  the position of the first handle of the run.
+		 * @param count   the number of IDs of the run.
+		 */
+		public void bind(int first, long[] handles, int offset, int count) {
+			m_owner.getChunk(first).bind(first, handles, offset, count);
+		}
+
+		/**
+		 * Drops every chunk of this allocator from the pool at once, together with
+		 * their entries; a new chunk is created on the next request for an ID. The
+		 * IDs of the dropped entries are not recycled; callers detach the entries
+		 * first.
+		 */
+		public void clear() {
+			long stamp = m_lock.writeLock();
+			try {
+				Chunk<T> chunk = m_firstChunk;
+				reset();
+				while (chunk != null) {
+					Chunk<T> next = chunk.m_next;
+					m_owner.dropChunk(chunk);
+					chunk = next;
+				}
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Moves every chunk of this allocator, together with its entries, to the
+		 * head of the chain of the target allocator; a new chunk is created on the
+		 * next request for an ID. The entries keep their IDs, since the chunks keep
+		 * their slots in the pool; the columns of each moved chunk, together with
+		 * their change ticks, are rearranged in the order of the target, and the
+		 * columns the target does not store are closed. Recycled IDs are handed
+		 * over to the target, and empty chunks are dropped rather than moved.
+		 *
+		 * @param target    the allocator to move the chunks to.
+		 * @param columnMap the column of the target each column of a chunk of this
+		 *                  allocator moves to, or -1 if the target does not store
+		 *                  it.
+		 */
+		public void transfer(Allocator<T> target, int[] columnMap) {
+			if (target == this) {
+				return;
+			}
+			// Allocators are locked in the order they were created, so that opposite
+			// transfers between the same two allocators cannot deadlock.
+			long stamp, targetStamp;
+			if (m_serial < target.m_serial) {
+				stamp = m_lock.writeLock();
+				targetStamp = target.m_lock.writeLock();
+			} else {
+				targetStamp = target.m_lock.writeLock();
+				stamp = m_lock.writeLock();
+			}
+			try {
+				if (m_currentChunk == null) {
+					return;
+				}
+				if (target.m_currentChunk == null) {
+					target.start();
+				}
+				m_currentChunk.m_index.decrementAndGet();
+				int[] freeIDs = new int[m_idStack.size()];
+				for (int i = 0; i < freeIDs.length; i++) {
+					freeIDs[i] = m_idStack.pop();
+				}
+				Chunk<T> chunk = m_firstChunk;
+				reset();
+				Chunk<T> head = target.m_firstChunk;
+				Chunk<T> tail = null;
+				while (chunk != null) {
+					Chunk<T> next = chunk.m_next;
+					if (chunk.m_index.get() < 0) {
+						m_owner.dropChunk(chunk);
+					} else {
+						chunk.remap(columnMap, target.m_columnFactories);
+						chunk.m_allocator = target;
+						chunk.m_lessee = null;
+						chunk.m_next = null;
+						if (tail == null) {
+							target.m_firstChunk = chunk;
+						} else {
+							tail.m_next = chunk;
+						}
+						tail = chunk;
+					}
+					chunk = next;
+				}
+				if (tail != null) {
+					tail.m_next = head;
+				}
+				for (int i = freeIDs.length - 1; i >= 0; i--) {
+					Chunk<T> owner = m_owner.getChunk(freeIDs[i]);
+					if (owner != null && owner.m_allocator == target) {
+						target.m_idStack.push(freeIDs[i]);
+					}
+				}
+			} finally {
+				target.m_lock.unlockWrite(targetStamp);
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		private void reset() {
+			m_idStack.clear();
+			m_currentChunk = null;
+			m_firstChunk = null;
+			m_nextID = IDFactory.DETACHED_BIT;
+		}
+
+		private void start() {
+			m_currentChunk = m_owner.createChunk(this, null);
+			m_firstChunk = m_currentChunk;
+			m_nextID = m_owner.m_idFactory.createID(m_currentChunk.m_id, m_currentChunk.m_index.incrementAndGet());
+		}
+
 		/**
 		 * Frees the specified ID for reuse.
 		 *
@@ -325,21 +739,126 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 					return id;
 				}
 				int freeID = chunk.remove(id);
-				if (freeID == IDFactory.DETACHED_BIT) {
+				if (freeID == IDFactory.DETACHED_BIT || chunk.m_lessee != null) {
 					return freeID;
 				}
 				if (chunk != m_currentChunk) {
 					m_idStack.push(freeID);
+					if (chunk.isEmpty()) {
+						long writeStamp = m_lock.tryConvertToWriteLock(stamp);
+						if (writeStamp == 0L) {
+							m_lock.unlockRead(stamp);
+							writeStamp = m_lock.writeLock();
+						}
+						stamp = writeStamp;
+						recycle(chunk);
+					}
 					return freeID;
 				}
 
-				stamp = m_lock.tryConvertToWriteLock(stamp);
+				long writeStamp = m_lock.tryConvertToWriteLock(stamp);
+				if (writeStamp == 0L) {
+					m_lock.unlockRead(stamp);
+					writeStamp = m_lock.writeLock();
+				}
+				stamp = writeStamp;
 				return m_nextID = freeID;
 			} finally {
 				m_lock.unlock(stamp);
 			}
 		}
 
+		/**
+		 * Returns the specified chunk to the pool once it holds no more entries,
+		 * discarding the recycled IDs pointing into it. The current chunk is kept.
+		 */
+		private void recycle(Chunk<T> chunk) {
+			if (chunk == m_currentChunk || chunk.m_lessee != null || chunk.m_allocator != this || !chunk.isEmpty()) {
+				return;
+			}
+			IDFactory idFactory = m_owner.m_idFactory;
+			int chunkID = chunk.m_id;
+			m_idStack.removeIf(id -> idFactory.getChunkID(id) == chunkID);
+			unlink(chunk);
+		}
+
+		/**
+		 * Unlinks the specified chunk from the chain of this allocator and drops it
+		 * from the pool.
+		 */
+		private void unlink(Chunk<T> chunk) {
+			if (m_firstChunk == chunk) {
+				m_firstChunk = chunk.m_next;
+			} else {
+				Chunk<T> previous = m_firstChunk;
+				while (previous.m_next != chunk) {
+					previous = previous.m_next;
+				}
+				previous.m_next = chunk.m_next;
+			}
+			m_owner.dropChunk(chunk);
+		}
+
+		/**
+		 * Merges the sparsely filled chunks of this allocator. The entries of the
+		 * least filled chunks are moved into the free rows of the fullest ones, for
+		 * as long as they fit, and the chunks left empty are returned to the pool.
+		 * The current chunk and leased chunks are left as is.
+		 *
+		 * <p>
+		 * Moved entries get new IDs, and the handles bound to them follow. The
+		 * allocator must not be used concurrently while it is being compacted.
+		 *
+		 * @return the number of chunks returned to the pool.
+		 */
+		public int compact() {
+			long stamp = m_lock.writeLock();
+			try {
+				int capacity = m_owner.m_idFactory.getChunkCapacity();
+				List<Chunk<T>> chunks = new ArrayList<Chunk<T>>();
+				int room = 0;
+				for (Chunk<T> chunk = m_firstChunk; chunk != null; chunk = chunk.m_next) {
+					if (chunk != m_currentChunk && chunk.m_lessee == null) {
+						chunks.add(chunk);
+						room += capacity - chunk.size();
+					}
+				}
+				chunks.sort((a, b) -> Integer.compare(a.size(), b.size()));
+				int dropped = 0;
+				int first = 0, last = chunks.size() - 1;
+				while (first < last) {
+					Chunk<T> source = chunks.get(first);
+					int size = source.size();
+					room -= capacity - size;
+					if (size > room) {
+						break;
+					}
+					for (int row = size - 1; row >= 0; row--) {
+						while (!chunks.get(last).hasCapacity()) {
+							last--;
+						}
+						source.moveRow(row, chunks.get(last));
+					}
+					room -= size;
+					unlink(source);
+					first++;
+					dropped++;
+				}
+				if (dropped > 0) {
+					m_idStack.clear();
+					for (int i = last; i >= first; i--) {
+						Chunk<T> chunk = chunks.get(i);
+						for (int row = capacity - 1; row >= chunk.size(); row--) {
+							m_idStack.push(chunk.idOf(row));
+						}
+					}
+				}
+				return dropped;
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
 		/**
 		 * Closes the allocator and releases any resources it is holding. It is
 		 * important to close an allocator when it is no longer needed to ensure that
@@ -348,6 +867,9 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		@Override
 		public void close() {
 			m_idStack.close();
+			for (Chunk<T> chunk = m_firstChunk; chunk != null; chunk = chunk.m_next) {
+				chunk.close();
+			}
 		}
 
 		/**
@@ -361,6 +883,48 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 			return new ChunkedPoolIterator<T>(m_firstChunk);
 		}
 
+		/**
+		 * Returns the first chunk of the chain of chunks owned by this allocator.
+		 *
+		 * @return the first chunk of this allocator.
+		 */
+		public Chunk<T> getFirstChunk() {
+			return m_firstChunk;
+		}
+
+		/**
+		 * Returns the number of columns of each chunk owned by this allocator.
+		 *
+		 * @return the number of columns per chunk.
+		 */
+		public int getColumnCount() {
+			return m_columnFactories.length;
+		}
+
+		/**
+		 * Attaches the specified object to this allocator, typically the owner of
+		 * the chunks of the allocator, so that it can be looked up from any of its
+		 * IDs.
+		 *
+		 * @param attachment the object to attach, or null to discard the current
+		 *                   attachment.
+		 * @return the previously attached object, or null.
+		 */
+		public Object attach(Object attachment) {
+			Object previous = m_attachment;
+			m_attachment = attachment;
+			return previous;
+		}
+
+		/**
+		 * Returns the object attached to this allocator.
+		 *
+		 * @return the attached object, or null.
+		 */
+		public Object attachment() {
+			return m_attachment;
+		}
+
 		/**
 		 * Returns the pool that the allocator is associated with.
 		 *
@@ -390,15 +954,44 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 	 * The Chunk class is not meant for direct use, and rather should be
 	 * interfaced with via the {@link Allocator} class. The Chunk expects items
 	 * stored to already have an ID.
-	 * 
+	 *
+	 * <p>
+	 * Besides its entries, a chunk may own a fixed number of columns: one
+	 * contiguous array per column, indexed by the same object ID as the entries.
+	 * Columns are kept dense alongside the entries, so that removing an entry
+	 * moves the row of the last entry into the vacated row.
+	 *
+	 * <p>
+	 * Each row also records the index of the {@link HandleTable handle} bound
+	 * to it, so that the handle table is kept up to date as rows are moved. A
+	 * row bound to a handle may have no entry at all, in which case the entry is
+	 * null until one is stored with {@link #putIfAbsent(int, Poolable)}.
+	 *
+	 * <p>
+	 * Alongside each column, a chunk keeps the change ticks of its rows, which
+	 * move with the rows, and the latest tick stamped on any of them. Callers
+	 * stamp the ticks; a reader looking for the rows changed since some tick
+	 * compares it with the latest tick of the column first, and skips the whole
+	 * chunk if nothing changed since.
+	 *
 	 * @param <T> the type of objects in the chunk.
 	 * @author Ethan Temprovich
 	 * @see Allocator
 	 */
 	public static final class Chunk<T extends Poolable> {
 
-		private final T[] m_data;
+		private volatile T[] m_data;
+		private volatile Column[] m_columns;
+		private Column.Factory[] m_columnFactories;
+		private volatile long[][] m_ticks;
+		private int[] m_lastAddedTicks;
+		private int[] m_lastChangedTicks;
+		private volatile int[] m_handles;
+		private List<Column> m_retiredColumns;
+		private final HandleTable m_handleTable;
 		private final int m_id;
+		private Allocator<T> m_allocator;
+		private volatile Thread m_lessee;
 		private Chunk<T> m_next;
 		private final AtomicInteger m_index;
 		private final IDFactory m_idFactory;
@@ -411,9 +1004,75 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		 * @param id        the id of the chunk.
 		 * @param idFactory the IDFactory used to create IDs for objects in the chunk.
 		 */
-		@SuppressWarnings("unchecked")
 		public Chunk(int id, IDFactory idFactory) {
-			this.m_data = (T[]) new Poolable[idFactory.getChunkCapacity()];
+			this(id, idFactory, new Column.Factory[0]);
+		}
+
+		/**
+		 * 
+		 * Constructs a new Chunk with the given id, IDFactory and columns.
+		 * 
+		 * @param id              the id of the chunk.
+		 * @param idFactory       the IDFactory used to create IDs for objects in
+		 *                        the chunk.
+		 * @param columnFactories the factories of the columns stored alongside the
+		 *                        objects.
+		 */
+		@SuppressWarnings("unchecked")
+		public Chunk(int id, IDFactory idFactory, Column.Factory[] columnFactories) {
+			this(id, idFactory, columnFactories, null);
+		}
+
+		/**
+		 * 
+		 * Constructs a new Chunk with the given id, IDFactory, columns and handle
+		 * table.
+		 * 
+		 * @param id              the id of the chunk.
+		 * @param idFactory       the IDFactory used to create IDs for objects in
+		 *                        the chunk.
+		 * @param columnFactories the factories of the columns stored alongside the
+		 *                        objects.
+		 * @param handleTable     the table of the handles bound to the rows of the
+		 *                        chunk, or null.
+		 */
+		public Chunk(int id, IDFactory idFactory, Column.Factory[] columnFactories, HandleTable handleTable) {
+			this(id, idFactory, columnFactories, handleTable, idFactory.getChunkCapacity());
+		}
+
+		/**
+		 * 
+		 * Constructs a new Chunk with the given id, IDFactory, columns and handle
+		 * table, allocating storage for the specified number of rows only. The
+		 * storage grows on demand, up to the chunk capacity of the IDFactory.
+		 * 
+		 * @param id              the id of the chunk.
+		 * @param idFactory       the IDFactory used to create IDs for objects in
+		 *                        the chunk.
+		 * @param columnFactories the factories of the columns stored alongside the
+		 *                        objects.
+		 * @param handleTable     the table of the handles bound to the rows of the
+		 *                        chunk, or null.
+		 * @param initialCapacity the number of rows to allocate storage for.
+		 */
+		@SuppressWarnings("unchecked")
+		public Chunk(int id, IDFactory idFactory, Column.Factory[] columnFactories, HandleTable handleTable, int initialCapacity) {
+			int capacity = Math.max(1, Math.min(initialCapacity, idFactory.getChunkCapacity()));
+			this.m_data = (T[]) new Poolable[capacity];
+			this.m_columns = new Column[columnFactories.length];
+			for (int i = 0; i < columnFactories.length; i++) {
+				m_columns[i] = columnFactories[i].create(capacity);
+			}
+			this.m_columnFactories = columnFactories;
+			this.m_ticks = new long[columnFactories.length][];
+			for (int i = 0; i < columnFactories.length; i++) {
+				m_ticks[i] = m_columns[i].isUniform() ? null : new long[capacity];
+			}
+			this.m_lastAddedTicks = new int[columnFactories.length];
+			this.m_lastChangedTicks = new int[columnFactories.length];
+			this.m_handles = new int[capacity];
+			this.m_retiredColumns = null;
+			this.m_handleTable = handleTable;
 			this.m_id = id;
 			this.m_next = null;
 			this.m_index = new AtomicInteger(-1);
@@ -425,19 +1084,344 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		 * 
 		 * Returns the object stored at the specified id in this chunk.
 		 * 
+		 * <p>
+		 * Reads are optimistic: the entry is read without acquiring the lock, and
+		 * the read is only retried under the read lock if a writer modified the
+		 * chunk in the meantime. Readers therefore never write to the state of the
+		 * lock, and do not contend with each other.
+		 * 
 		 * @param id the id of the object to retrieve
 		 * @return the object stored at the specified id in this chunk, or null if no
 		 *         object is stored at the id
 		 */
 		public T get(int id) {
-			long stamp = m_lock.readLock();
+			int row = m_idFactory.getObjectID(id);
+			long stamp = m_lock.tryOptimisticRead();
+			T[] data = m_data;
+			T entry = row < data.length ? data[row] : null;
+			if (m_lock.validate(stamp)) {
+				return entry;
+			}
+			stamp = m_lock.readLock();
 			try {
-				return m_data[m_idFactory.getObjectID(id)];
+				data = m_data;
+				return row < data.length ? data[row] : null;
 			} finally {
 				m_lock.unlockRead(stamp);
 			}
 		}
 
+		/**
+		 * 
+		 * Returns the object stored at the specified row of this chunk, without
+		 * locking.
+		 * 
+		 * @param row the row of the object to retrieve
+		 * @return the object stored at the specified row
+		 */
+		public T getEntry(int row) {
+			return m_data[row];
+		}
+
+		/**
+		 * Returns the value stored in the specified column for the specified id.
+		 *
+		 * @param id     the id of the row
+		 * @param column the index of the column
+		 * @return the value stored in the column at the row of the id
+		 */
+		public Object getValue(int id, int column) {
+			return m_columns[column].get(m_idFactory.getObjectID(id));
+		}
+
+		/**
+		 * Stores a value in the specified column for the specified id.
+		 *
+		 * @param id     the id of the row
+		 * @param column the index of the column
+		 * @param value  the value to store
+		 */
+		public void setValue(int id, int column, Object value) {
+			m_columns[column].set(m_idFactory.getObjectID(id), value);
+		}
+
+		/**
+		 * Stores the specified value at the specified id, unless an element is
+		 * already stored there.
+		 *
+		 * @param id    the position of the element in this chunk
+		 * @param value the element to be stored
+		 * @return the element stored at the specified position
+		 */
+		public T putIfAbsent(int id, T value) {
+			int row = m_idFactory.getObjectID(id);
+			long stamp = m_lock.writeLock();
+			try {
+				T current = m_data[row];
+				return current != null ? current : (m_data[row] = value);
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Binds the specified handle to the row of the specified id.
+		 *
+		 * @param id     the id of the row
+		 * @param handle the handle to bind
+		 */
+		public void bind(int id, long handle) {
+			int index = HandleTable.indexOf(handle);
+			long stamp = m_lock.writeLock();
+			try {
+				m_handles[m_idFactory.getObjectID(id)] = index + 1;
+				m_handleTable.relocate(index, id);
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Binds a run of handles to the run of rows starting at the specified id.
+		 * The handles must already refer to the ids of the rows, as
+		 * {@link HandleTable#acquire(int, int, long[], int)} does.
+		 *
+		 * @param first   the id of the first row
+		 * @param handles the handles to bind
+		 * @param offset  the position of the first handle of the run
+		 * @param count   the number of rows of the run
+		 */
+		public void bind(int first, long[] handles, int offset, int count) {
+			int row = m_idFactory.getObjectID(first);
+			long stamp = m_lock.writeLock();
+			try {
+				for (int i = 0; i < count; i++) {
+					m_handles[row + i] = HandleTable.indexOf(handles[offset + i]) + 1;
+				}
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Returns the handle bound to the specified row of this chunk.
+		 *
+		 * @param row the row of the handle
+		 * @return the handle bound to the row, or {@link HandleTable#NULL_HANDLE}
+		 */
+		public long getHandle(int row) {
+			int index = m_handles[row] - 1;
+			return index < 0 ? HandleTable.NULL_HANDLE : m_handleTable.handleOf(index);
+		}
+
+		/**
+		 * Returns the index of the handle bound to the specified row of this
+		 * chunk, without locking.
+		 *
+		 * @param row the row of the handle
+		 * @return the {@link HandleTable#indexOf(long) index} of the handle bound
+		 *         to the row, or -1
+		 */
+		public int getHandleIndex(int row) {
+			return m_handles[row] - 1;
+		}
+
+		/**
+		 * Returns the specified column. Rows past {@link #size()} hold no
+		 * meaningful value.
+		 *
+		 * @param column the index of the column
+		 * @return the column
+		 */
+		public Column getColumn(int column) {
+			return m_columns[column];
+		}
+
+		/**
+		 * Returns the number of columns stored in this chunk.
+		 *
+		 * @return the number of columns.
+		 */
+		public int getColumnCount() {
+			return m_columns.length;
+		}
+
+		/**
+		 * Returns the change ticks of the specified row in the specified column:
+		 * the tick at which the value was added in the high 32 bits, and the tick
+		 * at which it was last changed in the low 32 bits. A row never stamped
+		 * holds 0 for both. The rows of a {@link Column#isUniform() uniform}
+		 * column, such as a tag, are not stamped one by one: they all read the
+		 * latest ticks of the column in this chunk.
+		 *
+		 * @param row    the row of the value
+		 * @param column the index of the column
+		 * @return the packed change ticks of the value
+		 */
+		public long getTicks(int row, int column) {
+			long[] ticks = m_ticks[column];
+			if (ticks == null) {
+				return ((long) m_lastAddedTicks[column] << 32) | (m_lastChangedTicks[column] & 0xFFFFFFFFL);
+			}
+			return ticks[row];
+		}
+
+		/**
+		 * Stores the packed change ticks of the specified row in the specified
+		 * column, as returned by {@link #getTicks(int, int)}, e.g. to carry the
+		 * ticks of a value over to the row it moves to.
+		 *
+		 * @param row    the row of the value
+		 * @param column the index of the column
+		 * @param ticks  the packed change ticks of the value
+		 */
+		public void setTicks(int row, int column, long ticks) {
+			if (m_ticks[column] != null) {
+				m_ticks[column][row] = ticks;
+			}
+			raise(m_lastAddedTicks, column, (int) (ticks >>> 32));
+			raise(m_lastChangedTicks, column, (int) ticks);
+		}
+
+		/**
+		 * Returns the tick at which the value of the specified row in the specified
+		 * column was added.
+		 *
+		 * @param row    the row of the value
+		 * @param column the index of the column
+		 * @return the tick at which the value was added
+		 */
+		public int getAddedTick(int row, int column) {
+			return (int) (getTicks(row, column) >>> 32);
+		}
+
+		/**
+		 * Returns the tick at which the value of the specified row in the specified
+		 * column was last changed, or added if it was not changed since.
+		 *
+		 * @param row    the row of the value
+		 * @param column the index of the column
+		 * @return the tick at which the value last changed
+		 */
+		public int getChangedTick(int row, int column) {
+			return (int) getTicks(row, column);
+		}
+
+		/**
+		 * Stamps the value of the specified row in the specified column as added,
+		 * and thus changed, at the specified tick.
+		 *
+		 * @param row    the row of the value
+		 * @param column the index of the column
+		 * @param tick   the current tick
+		 */
+		public void setAddedTick(int row, int column, int tick) {
+			setTicks(row, column, ((long) tick << 32) | (tick & 0xFFFFFFFFL));
+		}
+
+		/**
+		 * Stamps the values of every column of a run of rows as added at the
+		 * specified tick.
+		 *
+		 * @param row   the first row of the run
+		 * @param count the number of rows of the run
+		 * @param tick  the current tick
+		 */
+		public void setAddedTicks(int row, int count, int tick) {
+			long ticks = ((long) tick << 32) | (tick & 0xFFFFFFFFL);
+			for (int column = 0; column < m_ticks.length; column++) {
+				if (m_ticks[column] != null) {
+					Arrays.fill(m_ticks[column], row, row + count, ticks);
+				}
+				raise(m_lastAddedTicks, column, tick);
+				raise(m_lastChangedTicks, column, tick);
+			}
+		}
+
+		/**
+		 * Stamps the value of the specified row in the specified column as changed
+		 * at the specified tick, keeping the tick at which it was added.
+		 *
+		 * @param row    the row of the value
+		 * @param column the index of the column
+		 * @param tick   the current tick
+		 */
+		public void setChangedTick(int row, int column, int tick) {
+			long[] ticks = m_ticks[column];
+			if (ticks != null) {
+				ticks[row] = (ticks[row] & 0xFFFFFFFF00000000L) | (tick & 0xFFFFFFFFL);
+			}
+			raise(m_lastChangedTicks, column, tick);
+		}
+
+		/**
+		 * Returns the latest tick at which a value of the specified column was
+		 * added to this chunk. No row of the column was added after it, so a
+		 * reader looking for values added since a later tick may skip the chunk.
+		 *
+		 * @param column the index of the column
+		 * @return the latest tick at which a value of the column was added
+		 */
+		public int getLastAddedTick(int column) {
+			return m_lastAddedTicks[column];
+		}
+
+		/**
+		 * Returns the latest tick at which a value of the specified column was
+		 * changed in this chunk.
+		 *
+		 * @param column the index of the column
+		 * @return the latest tick at which a value of the column changed
+		 * @see #getLastAddedTick(int)
+		 */
+		public int getLastChangedTick(int column) {
+			return m_lastChangedTicks[column];
+		}
+
+		/**
+		 * Raises the tick at the specified position to the specified tick, unless
+		 * it is already later. Ticks are compared by their difference, so that
+		 * they may wrap around.
+		 */
+		private static void raise(int[] lastTicks, int column, int tick) {
+			if (tick - lastTicks[column] > 0) {
+				lastTicks[column] = tick;
+			}
+		}
+
+		/**
+		 * Rearranges the columns of this chunk and their ticks in the order of the
+		 * column map, closing the columns that are not mapped.
+		 */
+		private void remap(int[] columnMap, Column.Factory[] columnFactories) {
+			int length = columnFactories.length;
+			Column[] columns = new Column[length];
+			long[][] ticks = new long[length][];
+			int[] lastAddedTicks = new int[length];
+			int[] lastChangedTicks = new int[length];
+			for (int i = 0; i < m_columns.length; i++) {
+				int column = columnMap[i];
+				if (column < 0) {
+					retire(m_columns[i]);
+					continue;
+				}
+				columns[column] = m_columns[i];
+				ticks[column] = m_ticks[i];
+				lastAddedTicks[column] = m_lastAddedTicks[i];
+				lastChangedTicks[column] = m_lastChangedTicks[i];
+			}
+			for (int i = 0; i < length; i++) {
+				if (ticks[i] == null && columns[i] != null && !columns[i].isUniform()) {
+					ticks[i] = new long[m_data.length];
+				}
+			}
+			m_columns = columns;
+			m_columnFactories = columnFactories;
+			m_ticks = ticks;
+			m_lastAddedTicks = lastAddedTicks;
+			m_lastChangedTicks = lastChangedTicks;
+		}
+
 		/**
 		 * Sets the element at the specified position in this chunk to the specified
 		 * value.
@@ -481,12 +1465,42 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 					return IDFactory.DETACHED_BIT;
 				}
 				T last = m_data[lastIndex];
-				T removed = m_data[removedIndex];
-				if (last != null && last != removed) {
-					last.setID(id);
-					m_data[removedIndex] = m_data[lastIndex];
+				int removedHandle = m_handles[removedIndex] - 1;
+				if (removedHandle >= 0) {
+					m_handleTable.relocate(removedHandle, id | IDFactory.DETACHED_BIT);
+				}
+				if (lastIndex != removedIndex) {
+					if (last != null) {
+						last.setID(id);
+					}
+					m_data[removedIndex] = last;
+					m_data[lastIndex] = null;
+					int movedHandle = m_handles[removedIndex] = m_handles[lastIndex];
+					m_handles[lastIndex] = 0;
+					if (movedHandle > 0) {
+						m_handleTable.relocate(movedHandle - 1, id);
+					}
+					for (Column column : m_columns) {
+						column.move(lastIndex, removedIndex);
+						column.clear(lastIndex);
+					}
+					for (long[] ticks : m_ticks) {
+						if (ticks != null) {
+							ticks[removedIndex] = ticks[lastIndex];
+							ticks[lastIndex] = 0L;
+						}
+					}
 				} else {
 					m_data[removedIndex] = null;
+					m_handles[removedIndex] = 0;
+					for (Column column : m_columns) {
+						column.clear(removedIndex);
+					}
+					for (long[] ticks : m_ticks) {
+						if (ticks != null) {
+							ticks[removedIndex] = 0L;
+						}
+					}
 				}
 				return m_idFactory.mergeChunkIDs(id, lastIndex);
 			} finally {
@@ -494,6 +1508,123 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 			}
 		}
 
+		/**
+		 * Grows the storage of this chunk, doubling it until it holds at least the
+		 * specified number of rows. The columns are replaced by larger ones and
+		 * the values of every allocated row are copied over.
+		 *
+		 * <p>
+		 * Readers do not lock the chunk, so they may still hold the replaced
+		 * columns: these are retired rather than closed, until the chunk is
+		 * dropped. The new columns are published before the new entries, so that
+		 * a reader seeing the new {@link #capacity()} also sees columns as large.
+		 *
+		 * @param rows the number of rows to hold
+		 */
+		private void ensureCapacity(int rows) {
+			if (rows <= m_data.length) {
+				return;
+			}
+			long stamp = m_lock.writeLock();
+			try {
+				int capacity = m_data.length;
+				if (rows <= capacity) {
+					return;
+				}
+				int newCapacity = capacity;
+				while (newCapacity < rows) {
+					newCapacity <<= 1;
+				}
+				newCapacity = Math.min(newCapacity, m_idFactory.getChunkCapacity());
+				Column[] columns = m_columns.clone();
+				long[][] ticks = m_ticks.clone();
+				for (int i = 0; i < columns.length; i++) {
+					Column column = columns[i];
+					Column grown = m_columnFactories[i].create(newCapacity);
+					if (grown != column) {
+						for (int row = 0; row < capacity; row++) {
+							column.copy(row, grown, row);
+						}
+						retire(column);
+						columns[i] = grown;
+					}
+					if (ticks[i] != null) {
+						ticks[i] = Arrays.copyOf(ticks[i], newCapacity);
+					}
+				}
+				m_handles = Arrays.copyOf(m_handles, newCapacity);
+				m_ticks = ticks;
+				m_columns = columns;
+				m_data = Arrays.copyOf(m_data, newCapacity);
+			} finally {
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Returns the ID of the next row of this chunk for the thread leasing it.
+		 *
+		 * @return the ID of the next row, or {@link IDFactory#DETACHED_BIT} if the
+		 *         chunk is full or not leased by the calling thread
+		 */
+		private int nextLeasedID() {
+			if (m_lessee != Thread.currentThread() || m_index.get() >= m_idFactory.getChunkCapacity() - 1) {
+				return IDFactory.DETACHED_BIT;
+			}
+			ensureCapacity(m_index.get() + 2);
+			return idOf(m_index.incrementAndGet());
+		}
+
+		/**
+		 * Returns the number of rows this chunk currently has storage for.
+		 *
+		 * @return the allocated capacity of this chunk
+		 */
+		public int capacity() {
+			return m_data.length;
+		}
+
+		/**
+		 * Moves the entry, handle and column values of the specified row into the
+		 * next free row of the target chunk, giving the entry the ID of that row.
+		 * Only the last row of a chunk is moved, so that the chunk stays dense.
+		 *
+		 * @param row    the row to move, which must be the last row of this chunk
+		 * @param target the chunk to move the row to
+		 */
+		private void moveRow(int row, Chunk<T> target) {
+			target.ensureCapacity(target.m_index.get() + 2);
+			long stamp = m_lock.writeLock();
+			long targetStamp = target.m_lock.writeLock();
+			try {
+				int targetRow = target.m_index.incrementAndGet();
+				int id = target.idOf(targetRow);
+				T entry = m_data[row];
+				if (entry != null) {
+					entry.setID(id);
+				}
+				target.m_data[targetRow] = entry;
+				int handle = target.m_handles[targetRow] = m_handles[row];
+				if (handle > 0) {
+					m_handleTable.relocate(handle - 1, id);
+				}
+				for (int i = 0; i < m_columns.length; i++) {
+					m_columns[i].copy(row, target.m_columns[i], targetRow);
+					m_columns[i].clear(row);
+					target.setTicks(targetRow, i, getTicks(row, i));
+					if (m_ticks[i] != null) {
+						m_ticks[i][row] = 0L;
+					}
+				}
+				m_data[row] = null;
+				m_handles[row] = 0;
+				m_index.decrementAndGet();
+			} finally {
+				target.m_lock.unlockWrite(targetStamp);
+				m_lock.unlockWrite(stamp);
+			}
+		}
+
 		/**
 		 * 
 		 * Returns whether or not the chunk has any empty spaces left in which an object
@@ -505,6 +1636,38 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 			return m_index.get() < m_idFactory.getChunkCapacity() - 1;
 		}
 
+		/**
+		 * 
+		 * Returns the next chunk in the linked list of chunks.
+		 * 
+		 * @return the next chunk, or null if this is the last chunk
+		 */
+		public Chunk<T> getNext() {
+			return m_next;
+		}
+
+		/**
+		 * 
+		 * Returns the allocator owning this chunk.
+		 * 
+		 * @return the owning allocator, or null if the chunk was not created by a
+		 *         pool
+		 */
+		public Allocator<T> getAllocator() {
+			return m_allocator;
+		}
+
+		/**
+		 * 
+		 * Returns the id of the specified row of this chunk.
+		 * 
+		 * @param row the row of this chunk
+		 * @return the id of the row
+		 */
+		public int idOf(int row) {
+			return m_idFactory.createID(m_id, row);
+		}
+
 		/**
 		 * 
 		 * Sets the next chunk in the linked list of chunks.
@@ -515,6 +1678,33 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 			this.m_next = next;
 		}
 
+		/**
+		 * Keeps a column replaced or dropped from this chunk until the chunk is
+		 * closed, as readers may still hold it.
+		 */
+		private void retire(Column column) {
+			if (m_retiredColumns == null) {
+				m_retiredColumns = new ArrayList<Column>();
+			}
+			m_retiredColumns.add(column);
+		}
+
+		/**
+		 * Releases the resources held by the columns of this chunk, including the
+		 * retired ones.
+		 */
+		private void close() {
+			for (Column column : m_columns) {
+				column.close();
+			}
+			if (m_retiredColumns != null) {
+				for (Column column : m_retiredColumns) {
+					column.close();
+				}
+				m_retiredColumns = null;
+			}
+		}
+
 		/**
 		 * Returns the number of objects managed by this chunk.
 		 * 
@@ -549,7 +1739,7 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 				if (i > 0) {
 					sb.append(", ");
 				}
-				sb.append(m_idFactory.idToString(m_data[i].getID()));
+				sb.append(m_data[i] != null ? m_idFactory.idToString(m_data[i].getID()) : HandleTable.handleToString(getHandle(i)));
 			}
 			sb.append("}]");
 			return sb.toString();
@@ -586,7 +1776,7 @@ public final class ChunkedPool<T extends ChunkedPool.Poolable> implements Closea
 		 */
 		@Override
 		public boolean hasNext() {
-			return m_currentChunk.size() > m_next || ((m_next = 0) == 0 && (m_currentChunk = m_currentChunk.m_next) != null);
+			return m_currentChunk != null && (m_currentChunk.size() > m_next || ((m_next = 0) == 0 && (m_currentChunk = m_currentChunk.m_next) != null));
 		}
 
 		/**
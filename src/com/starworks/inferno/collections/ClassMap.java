@@ -119,6 +119,7 @@ public final class ClassMap implements Closeable {
 	private final long m_memoryAddress;
 	private final Map<Object, Integer> m_objectCache;
 	private final ClassValue<Integer> m_classValue;
+	private final ThreadLocal<ClassIndex> m_transientClassIndex;
 
 	/**
 	 * Constructs a new `ClassMap` instance with a default m_capacity of
@@ -159,6 +160,7 @@ public final class ClassMap implements Closeable {
 				return m_index++;
 			}
 		};
+		this.m_transientClassIndex = ThreadLocal.withInitial(() -> new ClassIndex(0));
 	}
 
 	/**
@@ -336,25 +338,73 @@ public final class ClassMap implements Closeable {
 		return addObject(object);
 	}
 
-	public ClassIndex getClassIndex(int hash) {
-		return new ClassIndex(hash);
+	/**
+	 * Returns the signature of the single type with the specified index.
+	 *
+	 * @param index the index of the type
+	 * @return a new signature holding the index
+	 */
+	public ClassIndex getClassIndex(int index) {
+		ClassIndex classIndex = new ClassIndex(index >>> ClassIndex.WORD_SHIFT);
+		classIndex.add(index);
+		return classIndex.seal();
 	}
 
+	/**
+	 * Returns the signature of the classes of the specified objects, indexing the
+	 * classes that are not indexed yet.
+	 *
+	 * @param objects the objects whose classes make up the signature
+	 * @return a new signature of the classes
+	 * @throws IllegalArgumentException if two objects are of the same class
+	 */
 	public ClassIndex getClassIndex(Object[] objects) {
-		int size = objects.length;
-		boolean[] checkArray = new boolean[m_index + size + 1];
-		int min = Integer.MAX_VALUE, max = 0;
-		for (int i = 0; i < size; i++) {
-			int value = indexOf(objects[i].getClass());
-			value = value == 0 ? indexOfOrAdd(objects[i].getClass()) : value;
-			if (checkArray[value]) {
+		ClassIndex classIndex = new ClassIndex(m_index >>> ClassIndex.WORD_SHIFT);
+		for (Object object : objects) {
+			if (!classIndex.add(indexOfOrAdd(object.getClass()))) {
+				throw new IllegalArgumentException("Duplicate types are not allowed");
+			}
+		}
+		return classIndex.seal();
+	}
+
+	/**
+	 * Returns the signature of the specified types, indexing the types that are
+	 * not indexed yet.
+	 *
+	 * @param types the types that make up the signature
+	 * @return a new signature of the types
+	 * @throws IllegalArgumentException if a type is given twice
+	 */
+	public ClassIndex getClassIndex(Class<?>[] types) {
+		ClassIndex classIndex = new ClassIndex(m_index >>> ClassIndex.WORD_SHIFT);
+		for (Class<?> type : types) {
+			if (!classIndex.add(indexOfOrAdd(type))) {
 				throw new IllegalArgumentException("Duplicate types are not allowed");
 			}
-			checkArray[value] = true;
-			min = Math.min(value, min);
-			max = Math.max(value, max);
 		}
-		return new ClassIndex(checkArray, min, max, size);
+		return classIndex.seal();
+	}
+
+	/**
+	 * Returns the signature of the classes of the specified objects without
+	 * allocating, for lookups only. The returned signature belongs to the
+	 * calling thread and is overwritten by its next call of this method; it must
+	 * not be stored, e.g. as the key of a map.
+	 *
+	 * @param objects the objects whose classes make up the signature
+	 * @return the reused signature of the classes
+	 * @throws IllegalArgumentException if two objects are of the same class
+	 */
+	public ClassIndex getTransientClassIndex(Object[] objects) {
+		ClassIndex classIndex = m_transientClassIndex.get();
+		classIndex.clear();
+		for (Object object : objects) {
+			if (!classIndex.add(indexOfOrAdd(object.getClass()))) {
+				throw new IllegalArgumentException("Duplicate types are not allowed");
+			}
+		}
+		return classIndex.seal();
 	}
 
 	/**
@@ -461,27 +511,133 @@ public final class ClassMap implements Closeable {
 		return sb.toString();
 	}
 
+	/**
+	 * The signature of a set of types: a bitset holding the index of each type.
+	 *
+	 * <p>
+	 * Two signatures are equal if they hold the same indices, whatever the order
+	 * in which the indices were added. The position of an index among the
+	 * indices of a signature, its {@link #rank(int) rank}, gives each type of the
+	 * set a dense slot.
+	 */
 	public static final class ClassIndex {
 
-		private final int m_hashCode;
-		private final byte[] m_data;
+		static final int WORD_SHIFT = 6;
+
+		private long[] m_bits;
+		private int m_words;
+		private int m_hashCode;
 
-		private ClassIndex(int value) {
-			this.m_hashCode = value;
-			m_data = null;
+		private ClassIndex(int lastWord) {
+			this.m_bits = new long[lastWord + 1];
+			this.m_words = 0;
+			this.m_hashCode = 0;
 		}
 
-		private ClassIndex(boolean[] checkArray, int min, int max, int length) {
-			long result = 1;
-			int index = 0;
-			m_data = new byte[length];
-			for (int i = min; i <= max; i++) {
-				if (checkArray[i]) {
-					result = result * 31 + i;
-					m_data[index++] = (byte) (i ^ (i >>> 8));
+		private boolean add(int index) {
+			int word = index >>> WORD_SHIFT;
+			if (word >= m_bits.length) {
+				m_bits = Arrays.copyOf(m_bits, Math.max(word + 1, m_bits.length << 1));
+			}
+			long bit = 1L << index;
+			if ((m_bits[word] & bit) != 0) {
+				return false;
+			}
+			m_bits[word] |= bit;
+			m_words = Math.max(m_words, word + 1);
+			return true;
+		}
+
+		private void clear() {
+			Arrays.fill(m_bits, 0, m_words, 0L);
+			m_words = 0;
+		}
+
+		private ClassIndex seal() {
+			long hash = 1;
+			for (int i = 0; i < m_words; i++) {
+				hash = 31 * hash + m_bits[i];
+			}
+			m_hashCode = (int) (hash ^ (hash >>> 32));
+			return this;
+		}
+
+		/**
+		 * Returns whether this signature holds the specified index.
+		 *
+		 * @param index the index of a type
+		 * @return true if the type is part of the signature, false otherwise
+		 */
+		public boolean contains(int index) {
+			int word = index >>> WORD_SHIFT;
+			return index >= 0 && word < m_words && (m_bits[word] & (1L << index)) != 0;
+		}
+
+		/**
+		 * Returns the number of indices of this signature lower than the specified
+		 * index, if this signature holds it.
+		 *
+		 * @param index the index of a type
+		 * @return the slot of the type within the signature, or -1 if the type is
+		 *         not part of the signature
+		 */
+		public int rank(int index) {
+			if (!contains(index)) {
+				return -1;
+			}
+			int word = index >>> WORD_SHIFT;
+			int rank = Long.bitCount(m_bits[word] & ((1L << index) - 1));
+			for (int i = 0; i < word; i++) {
+				rank += Long.bitCount(m_bits[i]);
+			}
+			return rank;
+		}
+
+		/**
+		 * Returns whether this signature holds every index of the specified one.
+		 *
+		 * @param other the signature to look for
+		 * @return true if the other signature is a subset of this one, false
+		 *         otherwise
+		 */
+		public boolean containsAll(ClassIndex other) {
+			if (other.m_words > m_words) {
+				return false;
+			}
+			for (int i = 0; i < other.m_words; i++) {
+				if ((m_bits[i] & other.m_bits[i]) != other.m_bits[i]) {
+					return false;
 				}
 			}
-			m_hashCode = (int) (result ^ (result >>> 32));
+			return true;
+		}
+
+		/**
+		 * Returns whether this signature holds any index of the specified one.
+		 *
+		 * @param other the signature to look for
+		 * @return true if the signatures share an index, false otherwise
+		 */
+		public boolean intersects(ClassIndex other) {
+			for (int i = 0, n = Math.min(m_words, other.m_words); i < n; i++) {
+				if ((m_bits[i] & other.m_bits[i]) != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the number of indices of this signature.
+		 *
+		 * @return the number of types of the signature
+		 */
+		public int size() {
+			int size = 0;
+			for (int i = 0; i < m_words; i++) {
+				size += Long.bitCount(m_bits[i]);
+			}
+			return size;
 		}
 
 		@Override
@@ -490,7 +646,8 @@ public final class ClassMap implements Closeable {
 				return true;
 			if (o == null || getClass() != o.getClass())
 				return false;
-			return Arrays.equals(((ClassIndex) o).m_data, m_data);
+			ClassIndex other = (ClassIndex) o;
+			return m_words == other.m_words && Arrays.equals(m_bits, 0, m_words, other.m_bits, 0, m_words);
 		}
 
 		@Override
@@ -500,7 +657,13 @@ public final class ClassMap implements Closeable {
 
 		@Override
 		public String toString() {
-			return "ClassIndex[" + m_hashCode + ":" + Arrays.toString(m_data) + "]";
+			StringBuilder sb = new StringBuilder("ClassIndex[");
+			for (int i = 0, n = m_words << WORD_SHIFT; i < n; i++) {
+				if (contains(i)) {
+					sb.append(sb.length() > "ClassIndex[".length() ? ", " : "").append(i);
+				}
+			}
+			return sb.append(']').toString();
 		}
 	}
 }
@@ -0,0 +1,107 @@
+package com.starworks.inferno.collections;
+
+import java.io.Closeable;
+
+/**
+ * A Column stores one value per row of a {@link ChunkedPool.Chunk chunk}. All
+ * columns of a chunk share the row indices of its entries, and are kept dense
+ * alongside them: removing an entry moves the row of the last entry into the
+ * vacated row of every column.
+ *
+ * <p>
+ * How the values are laid out is up to the implementation. An
+ * {@link ObjectColumn} keeps references in a plain array, whereas a
+ * {@link FlatColumn} copies the primitive fields of each value into a flat
+ * block of off-heap memory.
+ *
+ * @author Ethan Temprovich
+ * @see ChunkedPool.Chunk
+ * @see Column.Factory
+ */
+public abstract class Column implements Closeable {
+
+	/**
+	 * Returns the value stored at the specified row.
+	 *
+	 * @param row the row of the value
+	 * @return the value stored at the row
+	 */
+	public abstract Object get(int row);
+
+	/**
+	 * Stores a value at the specified row.
+	 *
+	 * @param row   the row of the value
+	 * @param value the value to store
+	 */
+	public abstract void set(int row, Object value);
+
+	/**
+	 * Moves the value stored at one row into another row.
+	 *
+	 * @param from the row to move the value from
+	 * @param to   the row to move the value into
+	 */
+	public abstract void move(int from, int to);
+
+	/**
+	 * Copies the value stored at one row into a row of another column. The
+	 * default implementation stores the value returned by {@link #get(int)}.
+	 *
+	 * @param from   the row to copy the value from
+	 * @param target the column to copy the value into
+	 * @param to     the row of the target column to copy the value into
+	 */
+	public void copy(int from, Column target, int to) {
+		target.set(to, get(from));
+	}
+
+	/**
+	 * Clears the value stored at the specified row.
+	 *
+	 * @param row the row to clear
+	 */
+	public abstract void clear(int row);
+
+	/**
+	 * Returns the number of rows this column can hold.
+	 *
+	 * @return the capacity of this column
+	 */
+	public abstract int capacity();
+
+	/**
+	 * Returns whether every row of this column reads the same value, so that the
+	 * column stores nothing per row. The default implementation returns false.
+	 *
+	 * @return true if the rows of this column all hold the same value
+	 */
+	public boolean isUniform() {
+		return false;
+	}
+
+	/**
+	 * Releases any resources held by this column. The default implementation
+	 * holds none.
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Creates the columns of new chunks.
+	 *
+	 * @author Ethan Temprovich
+	 */
+	@FunctionalInterface
+	public interface Factory {
+
+		/**
+		 * Creates a new column able to hold the specified number of rows.
+		 *
+		 * @param capacity the number of rows of the column
+		 * @return a new column
+		 */
+		public Column create(int capacity);
+	}
+}
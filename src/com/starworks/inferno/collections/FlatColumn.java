@@ -0,0 +1,145 @@
+package com.starworks.inferno.collections;
+
+import com.starworks.inferno.util.UnsafeSupport;
+
+import sun.misc.Unsafe;
+
+/**
+ * A {@link Column} storing the primitive fields of its values in a flat block
+ * of off-heap memory, laid out as described by a {@link FlatLayout}. Each row
+ * occupies {@link FlatLayout#stride()} bytes, and rows are contiguous, so that
+ * a sequential scan of the column walks memory linearly.
+ *
+ * <p>
+ * Values are copied in when stored, and a new instance is materialized from
+ * the row whenever {@link #get(int)} is called; the fields of a row can
+ * instead be read and written in place through the {@link FlatLayout.Field
+ * fields} of the layout and the {@link #address(int) address} of the row.
+ *
+ * @author Ethan Temprovich
+ * @see FlatLayout
+ */
+public class FlatColumn extends Column {
+
+	private static final Unsafe unsafe = UnsafeSupport.getUnsafe();
+
+	private final FlatLayout<?> m_layout;
+	private final int m_capacity;
+	private final long m_stride;
+	private long m_address;
+
+	/**
+	 * Constructs a new column able to hold the specified number of rows.
+	 *
+	 * @param layout   the layout of the values of the column
+	 * @param capacity the number of rows of the column
+	 */
+	public FlatColumn(FlatLayout<?> layout, int capacity) {
+		this(layout, capacity, allocate((long) layout.stride() * capacity));
+	}
+
+	/**
+	 * Constructs a new column over a zeroed block of memory provided by the
+	 * caller, able to hold the specified number of rows.
+	 *
+	 * @param layout   the layout of the values of the column
+	 * @param capacity the number of rows of the column
+	 * @param address  the address of the block of memory of the column
+	 */
+	protected FlatColumn(FlatLayout<?> layout, int capacity, long address) {
+		this.m_layout = layout;
+		this.m_capacity = capacity;
+		this.m_stride = layout.stride();
+		this.m_address = address;
+	}
+
+	private static long allocate(long size) {
+		long address = unsafe.allocateMemory(size);
+		unsafe.setMemory(address, size, (byte) 0);
+		return address;
+	}
+
+	/**
+	 * Returns a factory of flat columns of the specified layout.
+	 *
+	 * @param layout the layout of the values of the columns
+	 * @return a factory of flat columns
+	 */
+	public static Column.Factory factory(FlatLayout<?> layout) {
+		return capacity -> new FlatColumn(layout, capacity);
+	}
+
+	/**
+	 * Returns the address of the specified row.
+	 *
+	 * @param row the row
+	 * @return the address of the first byte of the row
+	 */
+	public long address(int row) {
+		return m_address + row * m_stride;
+	}
+
+	@Override
+	public Object get(int row) {
+		return m_layout.read(address(row));
+	}
+
+	@Override
+	public void set(int row, Object value) {
+		m_layout.write(value, address(row));
+	}
+
+	@Override
+	public void move(int from, int to) {
+		unsafe.copyMemory(address(from), address(to), m_stride);
+	}
+
+	@Override
+	public void copy(int from, Column target, int to) {
+		if (target instanceof FlatColumn flat && flat.m_layout == m_layout) {
+			unsafe.copyMemory(address(from), flat.address(to), m_stride);
+			return;
+		}
+		super.copy(from, target, to);
+	}
+
+	@Override
+	public void clear(int row) {
+		unsafe.setMemory(address(row), m_stride, (byte) 0);
+	}
+
+	@Override
+	public int capacity() {
+		return m_capacity;
+	}
+
+	/**
+	 * Returns the layout of the values of this column.
+	 *
+	 * @return the layout of this column
+	 */
+	public FlatLayout<?> getLayout() {
+		return m_layout;
+	}
+
+	/**
+	 * Releases the memory of this column.
+	 */
+	@Override
+	public void close() {
+		if (m_address != 0) {
+			release(m_address);
+			m_address = 0;
+		}
+	}
+
+	/**
+	 * Releases the block of memory of this column. The default implementation
+	 * frees memory allocated by the column itself.
+	 *
+	 * @param address the address of the block of memory of the column
+	 */
+	protected void release(long address) {
+		unsafe.freeMemory(address);
+	}
+}
@@ -0,0 +1,389 @@
+package com.starworks.inferno.collections;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.starworks.inferno.util.UnsafeSupport;
+
+import sun.misc.Unsafe;
+
+/**
+ * Describes how the fields of a primitive-only type are laid out in flat,
+ * off-heap memory.
+ *
+ * <p>
+ * A type can be laid out flat if it is a record or a concrete class whose
+ * instance fields are all primitives. The fields are packed by descending size,
+ * so that each one is naturally aligned, and the row size is rounded up to 8
+ * bytes. Records are read through their accessors and materialized through
+ * their canonical constructor; plain classes are read and materialized through
+ * their {@link UnsafeSupport#objectFieldOffset(java.lang.reflect.Field) field
+ * offsets}.
+ *
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * FlatLayout&lt;Position&gt; layout = FlatLayout.of(Position.class);
+ * FlatLayout.Field x = layout.field("x");
+ * x.putFloat(address, x.getFloat(address) + 1f);
+ * </pre>
+ *
+ * @param <T> the type described by the layout.
+ * @author Ethan Temprovich
+ * @see FlatColumn
+ */
+public final class FlatLayout<T> {
+
+	private static final Unsafe unsafe = UnsafeSupport.getUnsafe();
+
+	private final Class<T> m_type;
+	private final Field[] m_fields;
+	private final int m_stride;
+	private final MethodHandle m_constructor;
+
+	private FlatLayout(Class<T> type, Field[] fields, int stride, MethodHandle constructor) {
+		this.m_type = type;
+		this.m_fields = fields;
+		this.m_stride = stride;
+		this.m_constructor = constructor;
+	}
+
+	/**
+	 * Computes the flat layout of the specified type.
+	 *
+	 * @param <T>  the type to lay out
+	 * @param type the class of the type to lay out
+	 * @return the flat layout of the type
+	 * @throws IllegalArgumentException if the type cannot be laid out flat
+	 */
+	public static <T> FlatLayout<T> of(Class<T> type) {
+		if (!isFlat(type)) {
+			throw new IllegalArgumentException(type.getName() + " is not a primitive-only record or class");
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			List<Field> fields = new ArrayList<Field>();
+			MethodHandle constructor = null;
+			if (type.isRecord()) {
+				RecordComponent[] components = type.getRecordComponents();
+				Class<?>[] parameterTypes = new Class<?>[components.length];
+				for (int i = 0; i < components.length; i++) {
+					var accessor = components[i].getAccessor();
+					accessor.setAccessible(true);
+					parameterTypes[i] = components[i].getType();
+					fields.add(new Field(components[i].getName(), parameterTypes[i], -1L, lookup.unreflect(accessor)));
+				}
+				Constructor<T> canonical = type.getDeclaredConstructor(parameterTypes);
+				canonical.setAccessible(true);
+				constructor = lookup.unreflectConstructor(canonical);
+			} else {
+				for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+					for (var f : c.getDeclaredFields()) {
+						if ((f.getModifiers() & Modifier.STATIC) == 0) {
+							fields.add(new Field(f.getName(), f.getType(), UnsafeSupport.objectFieldOffset(f), null));
+						}
+					}
+				}
+			}
+			Field[] packed = fields.toArray(Field[]::new);
+			Field[] ordered = packed.clone();
+			Arrays.sort(ordered, Comparator.comparingInt((Field f) -> f.m_size).reversed());
+			int offset = 0;
+			for (Field field : ordered) {
+				field.m_offset = offset;
+				offset += field.m_size;
+			}
+			int stride = Math.max(8, (offset + 7) & ~7);
+			return new FlatLayout<T>(type, packed, stride, constructor);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Unable to lay out " + type.getName(), e);
+		}
+	}
+
+	/**
+	 * Returns whether the specified type can be laid out flat: it must be a
+	 * record or a concrete, non-array class, and all of its instance fields must
+	 * be primitives.
+	 *
+	 * @param type the type to check
+	 * @return true if the type can be laid out flat, false otherwise
+	 */
+	public static boolean isFlat(Class<?> type) {
+		if (type == null || type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum() || Modifier.isAbstract(type.getModifiers())) {
+			return false;
+		}
+		boolean any = false;
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (var f : c.getDeclaredFields()) {
+				if ((f.getModifiers() & Modifier.STATIC) != 0) {
+					continue;
+				}
+				if (!f.getType().isPrimitive()) {
+					return false;
+				}
+				any = true;
+			}
+		}
+		return any;
+	}
+
+	/**
+	 * Copies the fields of the specified value into flat memory.
+	 *
+	 * @param value   the value to copy
+	 * @param address the address of the row to copy the value into
+	 */
+	public void write(Object value, long address) {
+		for (Field field : m_fields) {
+			field.copyIn(value, address);
+		}
+	}
+
+	/**
+	 * Materializes a new instance from the fields stored in flat memory.
+	 *
+	 * @param address the address of the row to read
+	 * @return a new instance holding the fields of the row
+	 */
+	public T read(long address) {
+		try {
+			if (m_constructor != null) {
+				Object[] arguments = new Object[m_fields.length];
+				for (int i = 0; i < arguments.length; i++) {
+					arguments[i] = m_fields[i].box(address);
+				}
+				return m_type.cast(m_constructor.invokeWithArguments(arguments));
+			}
+			Object instance = unsafe.allocateInstance(m_type);
+			for (Field field : m_fields) {
+				field.copyOut(address, instance);
+			}
+			return m_type.cast(instance);
+		} catch (Throwable e) {
+			throw new IllegalStateException("Unable to materialize " + m_type.getName(), e);
+		}
+	}
+
+	/**
+	 * Returns the field of the specified name.
+	 *
+	 * @param name the name of the field
+	 * @return the field of the specified name
+	 * @throws IllegalArgumentException if the type declares no such field
+	 */
+	public Field field(String name) {
+		for (Field field : m_fields) {
+			if (field.m_name.equals(name)) {
+				return field;
+			}
+		}
+		throw new IllegalArgumentException(m_type.getName() + " has no field `" + name + "`");
+	}
+
+	/**
+	 * Returns the fields of the type, in declaration order.
+	 *
+	 * @return the fields of the type
+	 */
+	public Field[] fields() {
+		return m_fields.clone();
+	}
+
+	/**
+	 * Returns the number of bytes occupied by one value.
+	 *
+	 * @return the size of a row
+	 */
+	public int stride() {
+		return m_stride;
+	}
+
+	/**
+	 * Returns the type described by this layout.
+	 *
+	 * @return the type described by this layout
+	 */
+	public Class<T> type() {
+		return m_type;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("FlatLayout[type=").append(m_type.getSimpleName());
+		sb.append(", stride=").append(m_stride).append(", fields={");
+		for (int i = 0; i < m_fields.length; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(m_fields[i]);
+		}
+		sb.append("}]");
+		return sb.toString();
+	}
+
+	/**
+	 * A primitive field of a flat layout. The typed accessors read and write the
+	 * field in place, given the address of a row; they do not check that the
+	 * accessed type matches the type of the field.
+	 *
+	 * @author Ethan Temprovich
+	 */
+	public static final class Field {
+
+		private final String m_name;
+		private final Class<?> m_type;
+		private final int m_size;
+		private final long m_heapOffset;
+		private final MethodHandle m_accessor;
+		private int m_offset;
+
+		private Field(String name, Class<?> type, long heapOffset, MethodHandle accessor) {
+			this.m_name = name;
+			this.m_type = type;
+			this.m_size = (int) UnsafeSupport.sizeOfField(type);
+			this.m_heapOffset = heapOffset;
+			this.m_accessor = accessor;
+		}
+
+		private void copyIn(Object source, long address) {
+			long target = address + m_offset;
+			if (m_accessor == null) {
+				switch (m_size) {
+				case 1 -> unsafe.putByte(target, unsafe.getByte(source, m_heapOffset));
+				case 2 -> unsafe.putShort(target, unsafe.getShort(source, m_heapOffset));
+				case 4 -> unsafe.putInt(target, unsafe.getInt(source, m_heapOffset));
+				default -> unsafe.putLong(target, unsafe.getLong(source, m_heapOffset));
+				}
+				return;
+			}
+			Object value;
+			try {
+				value = m_accessor.invoke(source);
+			} catch (Throwable e) {
+				throw new IllegalStateException("Unable to read field `" + m_name + "`", e);
+			}
+			if (m_type == boolean.class) unsafe.putByte(target, (byte) (((Boolean) value) ? 1 : 0));
+			else if (m_type == byte.class) unsafe.putByte(target, (Byte) value);
+			else if (m_type == short.class) unsafe.putShort(target, (Short) value);
+			else if (m_type == char.class) unsafe.putChar(target, (Character) value);
+			else if (m_type == int.class) unsafe.putInt(target, (Integer) value);
+			else if (m_type == float.class) unsafe.putFloat(target, (Float) value);
+			else if (m_type == long.class) unsafe.putLong(target, (Long) value);
+			else unsafe.putDouble(target, (Double) value);
+		}
+
+		private void copyOut(long address, Object target) {
+			long source = address + m_offset;
+			switch (m_size) {
+			case 1 -> unsafe.putByte(target, m_heapOffset, unsafe.getByte(source));
+			case 2 -> unsafe.putShort(target, m_heapOffset, unsafe.getShort(source));
+			case 4 -> unsafe.putInt(target, m_heapOffset, unsafe.getInt(source));
+			default -> unsafe.putLong(target, m_heapOffset, unsafe.getLong(source));
+			}
+		}
+
+		private Object box(long address) {
+			long source = address + m_offset;
+			if (m_type == boolean.class) return unsafe.getByte(source) != 0;
+			if (m_type == byte.class) return unsafe.getByte(source);
+			if (m_type == short.class) return unsafe.getShort(source);
+			if (m_type == char.class) return unsafe.getChar(source);
+			if (m_type == int.class) return unsafe.getInt(source);
+			if (m_type == float.class) return unsafe.getFloat(source);
+			if (m_type == long.class) return unsafe.getLong(source);
+			return unsafe.getDouble(source);
+		}
+
+		public boolean getBoolean(long address) {
+			return unsafe.getByte(address + m_offset) != 0;
+		}
+
+		public void putBoolean(long address, boolean value) {
+			unsafe.putByte(address + m_offset, (byte) (value ? 1 : 0));
+		}
+
+		public byte getByte(long address) {
+			return unsafe.getByte(address + m_offset);
+		}
+
+		public void putByte(long address, byte value) {
+			unsafe.putByte(address + m_offset, value);
+		}
+
+		public short getShort(long address) {
+			return unsafe.getShort(address + m_offset);
+		}
+
+		public void putShort(long address, short value) {
+			unsafe.putShort(address + m_offset, value);
+		}
+
+		public char getChar(long address) {
+			return unsafe.getChar(address + m_offset);
+		}
+
+		public void putChar(long address, char value) {
+			unsafe.putChar(address + m_offset, value);
+		}
+
+		public int getInt(long address) {
+			return unsafe.getInt(address + m_offset);
+		}
+
+		public void putInt(long address, int value) {
+			unsafe.putInt(address + m_offset, value);
+		}
+
+		public float getFloat(long address) {
+			return unsafe.getFloat(address + m_offset);
+		}
+
+		public void putFloat(long address, float value) {
+			unsafe.putFloat(address + m_offset, value);
+		}
+
+		public long getLong(long address) {
+			return unsafe.getLong(address + m_offset);
+		}
+
+		public void putLong(long address, long value) {
+			unsafe.putLong(address + m_offset, value);
+		}
+
+		public double getDouble(long address) {
+			return unsafe.getDouble(address + m_offset);
+		}
+
+		public void putDouble(long address, double value) {
+			unsafe.putDouble(address + m_offset, value);
+		}
+
+		public String getName() {
+			return m_name;
+		}
+
+		public Class<?> getType() {
+			return m_type;
+		}
+
+		public int getOffset() {
+			return m_offset;
+		}
+
+		public int getSize() {
+			return m_size;
+		}
+
+		@Override
+		public String toString() {
+			return m_type.getName() + " " + m_name + "@" + m_offset;
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package com.starworks.inferno.collections;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import com.starworks.inferno.collections.ChunkedPool.IDFactory;
+
+/**
+ * A table of generational handles, mapping stable 64-bit handles onto the
+ * current ID of the object they refer to.
+ *
+ * <p>
+ * The IDs handed out by a {@link ChunkedPool} change whenever an object is
+ * moved to another chunk or swapped into a vacated row, and are recycled once
+ * freed. A handle, on the other hand, stays the same for the whole lifetime of
+ * its object. It packs an index into this table together with the generation
+ * of the slot at that index:
+ *
+ * <pre>
+ * GENERATION(32):INDEX(32)
+ * </pre>
+ *
+ * The generation of a slot is incremented when its handle is released, so
+ * that any handle still referring to the previous occupant of the slot is
+ * detected as stale in O(1), without holding a reference to the object.
+ *
+ * @author Ethan Temprovich
+ * @see ChunkedPool#resolve(long)
+ */
+public final class HandleTable implements Closeable {
+
+	/** A handle that never refers to any object. */
+	public static final long NULL_HANDLE = 0L;
+
+	/** The default number of slots of a table. */
+	public static final int DEFAULT_CAPACITY = 1 << 10;
+
+	private static final int FIRST_GENERATION = 1;
+
+	private int[] m_locations;
+	private int[] m_generations;
+	private int m_size;
+	private final IntStack m_freeIndices;
+	private final StampedLock m_lock;
+
+	/**
+	 * Constructs a new table with the default capacity.
+	 */
+	public HandleTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new table with the specified initial capacity.
+	 *
+	 * @param initialCapacity the initial number of slots of the table
+	 */
+	public HandleTable(int initialCapacity) {
+		this.m_locations = new int[Math.max(1, initialCapacity)];
+		this.m_generations = new int[m_locations.length];
+		this.m_size = 0;
+		this.m_freeIndices = new IntStack(ChunkedPool.ID_STACK_CAPACITY);
+		this.m_lock = new StampedLock();
+	}
+
+	/**
+	 * Acquires a new handle referring to the specified location.
+	 *
+	 * @param location the current ID of the object
+	 * @return a new live handle
+	 */
+	public long acquire(int location) {
+		long stamp = m_lock.writeLock();
+		try {
+			int index = m_freeIndices.pop();
+			if (index == Integer.MIN_VALUE) {
+				index = m_size++;
+				if (index == m_locations.length) {
+					int capacity = index + (index >>> 1) + 1;
+					m_locations = Arrays.copyOf(m_locations, capacity);
+					m_generations = Arrays.copyOf(m_generations, capacity);
+				}
+				m_generations[index] = FIRST_GENERATION;
+			}
+			m_locations[index] = location;
+			return handle(index, m_generations[index]);
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Acquires new handles referring to a run of consecutive locations.
+	 *
+	 * @param firstLocation the current ID of the first object of the run
+	 * @param count         the number of objects of the run
+	 * @param handles       the array to store the new live handles into
+	 * @param offset        the position of the first handle in the array
+	 */
+	public void acquire(int firstLocation, int count, long[] handles, int offset) {
+		long stamp = m_lock.writeLock();
+		try {
+			for (int i = 0; i < count; i++) {
+				int index = m_freeIndices.pop();
+				if (index == Integer.MIN_VALUE) {
+					index = m_size++;
+					if (index == m_locations.length) {
+						int capacity = index + Math.max(index >>> 1, count - i);
+						m_locations = Arrays.copyOf(m_locations, capacity);
+						m_generations = Arrays.copyOf(m_generations, capacity);
+					}
+					m_generations[index] = FIRST_GENERATION;
+				}
+				m_locations[index] = firstLocation + i;
+				handles[offset + i] = handle(index, m_generations[index]);
+			}
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Releases the specified handle, so that it and every copy of it are stale
+	 * from now on, and its slot may be reused.
+	 *
+	 * @param handle the handle to release
+	 * @return true if the handle was live, false otherwise
+	 */
+	public boolean release(long handle) {
+		int index = indexOf(handle);
+		long stamp = m_lock.writeLock();
+		try {
+			if (index < 0 || index >= m_size || m_generations[index] != generationOf(handle)) {
+				return false;
+			}
+			int generation = m_generations[index] + 1;
+			m_generations[index] = generation == 0 ? FIRST_GENERATION : generation;
+			m_locations[index] = IDFactory.DETACHED_BIT;
+			m_freeIndices.push(index);
+			return true;
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Releases the live handles of the specified slots at once, under a single
+	 * acquisition of the lock. Negative indices are skipped.
+	 *
+	 * @param indices the indices of the slots to release
+	 * @param count   the number of indices to read from the array
+	 */
+	public void release(int[] indices, int count) {
+		long stamp = m_lock.writeLock();
+		try {
+			for (int i = 0; i < count; i++) {
+				int index = indices[i];
+				if (index < 0 || index >= m_size) {
+					continue;
+				}
+				int generation = m_generations[index] + 1;
+				m_generations[index] = generation == 0 ? FIRST_GENERATION : generation;
+				m_locations[index] = IDFactory.DETACHED_BIT;
+				m_freeIndices.push(index);
+			}
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns whether the specified handle refers to a live object.
+	 *
+	 * @param handle the handle to check
+	 * @return true if the handle is live, false if it is stale or null
+	 */
+	public boolean isAlive(long handle) {
+		int index = indexOf(handle);
+		int generation = generationOf(handle);
+		long stamp = m_lock.tryOptimisticRead();
+		boolean alive = index >= 0 && index < m_size && m_generations[index] == generation;
+		if (!m_lock.validate(stamp)) {
+			stamp = m_lock.readLock();
+			try {
+				alive = index >= 0 && index < m_size && m_generations[index] == generation;
+			} finally {
+				m_lock.unlockRead(stamp);
+			}
+		}
+		return alive;
+	}
+
+	/**
+	 * Returns the current ID of the object referred to by the specified handle.
+	 *
+	 * @param handle the handle to locate
+	 * @return the current ID of the object, or an ID with the
+	 *         {@link IDFactory#DETACHED_BIT} set if the handle is stale or its
+	 *         object is not stored in the pool
+	 */
+	public int locate(long handle) {
+		int index = indexOf(handle);
+		int generation = generationOf(handle);
+		long stamp = m_lock.tryOptimisticRead();
+		int location = locate(index, generation);
+		if (!m_lock.validate(stamp)) {
+			stamp = m_lock.readLock();
+			try {
+				location = locate(index, generation);
+			} finally {
+				m_lock.unlockRead(stamp);
+			}
+		}
+		return location;
+	}
+
+	private int locate(int index, int generation) {
+		if (index < 0 || index >= m_size || m_generations[index] != generation) {
+			return IDFactory.DETACHED_BIT;
+		}
+		return m_locations[index];
+	}
+
+	/**
+	 * Records the current ID of the object in the specified slot.
+	 *
+	 * @param index    the index of the slot
+	 * @param location the current ID of the object
+	 */
+	public void relocate(int index, int location) {
+		long stamp = m_lock.readLock();
+		try {
+			m_locations[index] = location;
+		} finally {
+			m_lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the live handle of the specified slot.
+	 *
+	 * @param index the index of the slot
+	 * @return the handle of the current occupant of the slot
+	 */
+	public long handleOf(int index) {
+		long stamp = m_lock.readLock();
+		try {
+			return handle(index, m_generations[index]);
+		} finally {
+			m_lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the number of slots ever handed out by this table.
+	 *
+	 * @return the number of slots in use or free for reuse
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	@Override
+	public void close() {
+		m_freeIndices.close();
+	}
+
+	public static long handle(int index, int generation) {
+		return ((long) generation << Integer.SIZE) | (index & 0xFFFFFFFFL);
+	}
+
+	public static int indexOf(long handle) {
+		return (int) handle;
+	}
+
+	public static int generationOf(long handle) {
+		return (int) (handle >>> Integer.SIZE);
+	}
+
+	public static String handleToString(long handle) {
+		return generationOf(handle) + ":" + indexOf(handle);
+	}
+
+	@Override
+	public String toString() {
+		return "HandleTable[size=" + m_size + ", capacity=" + m_locations.length + ", free=" + m_freeIndices.size() + "]";
+	}
+}
@@ -3,6 +3,7 @@ package com.starworks.inferno.collections;
 import java.io.Closeable;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
 
 import com.starworks.inferno.util.UnsafeSupport;
 
@@ -83,6 +84,33 @@ public final class IntStack implements Closeable {
 		return true;
 	}
 
+	/**
+	 * Removes every element of the stack that matches the given predicate,
+	 * keeping the remaining elements in order. Not meant to run concurrently with
+	 * {@link #push(int)} or {@link #pop()}.
+	 *
+	 * @param filter the predicate matching the elements to remove
+	 * @return the number of removed elements
+	 */
+	public int removeIf(IntPredicate filter) {
+		long l = m_lock.writeLock();
+		try {
+			int top = m_index.get();
+			int write = 0;
+			for (int read = 0; read <= top; read += Integer.BYTES) {
+				int value = unsafe.getInt(m_address + read);
+				if (!filter.test(value)) {
+					unsafe.putInt(m_address + write, value);
+					write += Integer.BYTES;
+				}
+			}
+			m_index.set(write - Integer.BYTES);
+			return (top + Integer.BYTES - write) / Integer.BYTES;
+		} finally {
+			m_lock.unlock(l);
+		}
+	}
+
 	/**
 	 * Removes all elements from the stack.
 	 */
@@ -0,0 +1,47 @@
+package com.starworks.inferno.collections;
+
+import java.nio.MappedByteBuffer;
+
+import com.starworks.inferno.util.UnsafeSupport;
+
+/**
+ * A {@link FlatColumn} whose rows live in a memory-mapped region of a file
+ * instead of native memory, so that the operating system may page the column
+ * out while it is cold.
+ *
+ * @author Ethan Temprovich
+ * @see MappedStorage
+ */
+public final class MappedColumn extends FlatColumn {
+
+	private MappedByteBuffer m_buffer;
+
+	/**
+	 * Constructs a new column over the specified mapped region.
+	 *
+	 * @param layout   the layout of the values of the column
+	 * @param capacity the number of rows of the column
+	 * @param buffer   the mapped region backing the column
+	 */
+	MappedColumn(FlatLayout<?> layout, int capacity, MappedByteBuffer buffer) {
+		super(layout, capacity, UnsafeSupport.addressOf(buffer));
+		this.m_buffer = buffer;
+	}
+
+	/**
+	 * Flushes the rows of this column to the backing file.
+	 */
+	public void force() {
+		if (m_buffer != null) {
+			m_buffer.force();
+		}
+	}
+
+	/**
+	 * Drops the mapped region; it is unmapped once the buffer is collected.
+	 */
+	@Override
+	protected void release(long address) {
+		m_buffer = null;
+	}
+}
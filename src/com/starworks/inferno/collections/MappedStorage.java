@@ -0,0 +1,117 @@
+package com.starworks.inferno.collections;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backs {@link FlatColumn flat columns} with memory-mapped regions of files in
+ * a working directory.
+ *
+ * <p>
+ * Each flat type is given its own file, which grows by one region for every
+ * column created; a region holds exactly the rows of one chunk. Hot regions
+ * stay resident while the operating system is free to page cold ones out,
+ * which lets the stored components exceed the heap.
+ *
+ * <p>
+ * The files are scratch storage: they are deleted when the storage is closed.
+ *
+ * @author Ethan Temprovich
+ * @see MappedColumn
+ */
+public final class MappedStorage implements Closeable {
+
+	private final Path m_directory;
+	private final Map<Class<?>, MappedFile> m_files;
+
+	/**
+	 * Constructs a new storage in the specified working directory, creating the
+	 * directory if it does not exist.
+	 *
+	 * @param directory the working directory of the storage
+	 * @throws UncheckedIOException if the directory cannot be created
+	 */
+	public MappedStorage(Path directory) {
+		try {
+			this.m_directory = Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to create working directory " + directory, e);
+		}
+		this.m_files = new ConcurrentHashMap<Class<?>, MappedFile>();
+	}
+
+	/**
+	 * Returns a factory of columns of the specified layout, each mapped onto a
+	 * new region of the file of its type.
+	 *
+	 * @param layout the layout of the values of the columns
+	 * @return a factory of mapped columns
+	 */
+	public Column.Factory factory(FlatLayout<?> layout) {
+		MappedFile file = m_files.computeIfAbsent(layout.type(), type -> new MappedFile(m_directory.resolve(type.getName() + ".columns")));
+		return capacity -> new MappedColumn(layout, capacity, file.map((long) layout.stride() * capacity));
+	}
+
+	/**
+	 * Returns the working directory of this storage.
+	 *
+	 * @return the working directory
+	 */
+	public Path getDirectory() {
+		return m_directory;
+	}
+
+	/**
+	 * Closes and deletes the files of this storage.
+	 */
+	@Override
+	public void close() {
+		m_files.values().forEach(MappedFile::close);
+		m_files.clear();
+	}
+
+	private static final class MappedFile implements Closeable {
+
+		private final Path m_path;
+		private final FileChannel m_channel;
+		private long m_size;
+
+		private MappedFile(Path path) {
+			this.m_path = path;
+			try {
+				this.m_channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to open " + path, e);
+			}
+			this.m_size = 0;
+		}
+
+		private synchronized MappedByteBuffer map(long size) {
+			try {
+				MappedByteBuffer buffer = m_channel.map(FileChannel.MapMode.READ_WRITE, m_size, size);
+				m_size += size;
+				return buffer;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to map " + size + " bytes of " + m_path, e);
+			}
+		}
+
+		@Override
+		public void close() {
+			try {
+				m_channel.close();
+				Files.deleteIfExists(m_path);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to close " + m_path, e);
+			}
+		}
+	}
+}
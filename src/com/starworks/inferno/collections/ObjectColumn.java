@@ -0,0 +1,61 @@
+package com.starworks.inferno.collections;
+
+/**
+ * A {@link Column} storing references in a plain array.
+ *
+ * @author Ethan Temprovich
+ */
+public final class ObjectColumn extends Column {
+
+	/**
+	 * The factory of object columns.
+	 */
+	public static final Column.Factory FACTORY = ObjectColumn::new;
+
+	private final Object[] m_data;
+
+	/**
+	 * Constructs a new column able to hold the specified number of rows.
+	 *
+	 * @param capacity the number of rows of the column
+	 */
+	public ObjectColumn(int capacity) {
+		this.m_data = new Object[capacity];
+	}
+
+	@Override
+	public Object get(int row) {
+		return m_data[row];
+	}
+
+	@Override
+	public void set(int row, Object value) {
+		m_data[row] = value;
+	}
+
+	@Override
+	public void move(int from, int to) {
+		m_data[to] = m_data[from];
+		m_data[from] = null;
+	}
+
+	@Override
+	public void clear(int row) {
+		m_data[row] = null;
+	}
+
+	@Override
+	public int capacity() {
+		return m_data.length;
+	}
+
+	/**
+	 * Returns the backing array of this column. Rows past the size of the owning
+	 * chunk hold no meaningful value.
+	 *
+	 * @return the backing array of this column
+	 */
+	public Object[] array() {
+		return m_data;
+	}
+}
@@ -0,0 +1,100 @@
+package com.starworks.inferno.collections;
+
+import java.util.Objects;
+
+/**
+ * A {@link Column} holding a single value shared by every row of its chunk.
+ *
+ * <p>
+ * A shared column stores its value once, whatever the number of rows of the
+ * chunk, so that entities referring to an identical value do not each keep a
+ * slot for it and do not copy it when they move. Only equal values may be
+ * stored into it: entities with different values must be kept in different
+ * chunks, which is up to the owner of the column.
+ *
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * Column.Factory factory = SharedColumn.factory(new Material("stone"));
+ * Column column = factory.create(16);
+ * Material material = (Material) column.get(0);
+ * </pre>
+ *
+ * @author Ethan Temprovich
+ */
+public final class SharedColumn extends Column {
+
+	private final Object m_value;
+	private final int m_capacity;
+
+	private SharedColumn(Object value, int capacity) {
+		this.m_value = value;
+		this.m_capacity = capacity;
+	}
+
+	/**
+	 * Returns a factory of columns sharing the specified value.
+	 *
+	 * @param value the value shared by the rows of the columns
+	 * @return the factory of the shared columns
+	 */
+	public static Column.Factory factory(Object value) {
+		return capacity -> new SharedColumn(value, capacity);
+	}
+
+	/**
+	 * Returns the value shared by the rows of this column.
+	 *
+	 * @return the shared value
+	 */
+	public Object value() {
+		return m_value;
+	}
+
+	@Override
+	public Object get(int row) {
+		return m_value;
+	}
+
+	/**
+	 * Checks that the value is equal to the shared value; nothing is stored.
+	 *
+	 * @throws IllegalArgumentException if the value differs from the shared
+	 *                                  value
+	 */
+	@Override
+	public void set(int row, Object value) {
+		if (!Objects.equals(value, m_value)) {
+			throw new IllegalArgumentException("Value " + value + " differs from the shared value " + m_value);
+		}
+	}
+
+	@Override
+	public void move(int from, int to) {
+	}
+
+	@Override
+	public void copy(int from, Column target, int to) {
+		target.set(to, m_value);
+	}
+
+	@Override
+	public void clear(int row) {
+	}
+
+	@Override
+	public boolean isUniform() {
+		return true;
+	}
+
+	@Override
+	public int capacity() {
+		return m_capacity;
+	}
+
+	@Override
+	public String toString() {
+		return "SharedColumn[" + m_value + "]";
+	}
+}
@@ -0,0 +1,220 @@
+package com.starworks.inferno.collections;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of non-negative ints stored as a bitset that keeps only its non-zero
+ * words.
+ *
+ * <p>
+ * Each word of 64 bits is stored along with its position among the words of
+ * the full bitset, and the words are kept sorted by position. A set holding a
+ * few clustered values thus takes a few words, however high the values, while
+ * {@link #and(SparseBitSet) intersections}, {@link #andNot(SparseBitSet)
+ * differences} and {@link #or(SparseBitSet) unions} are computed a word at a
+ * time by merging the words of both sets. Adding values in increasing order
+ * appends to the last word, in constant time.
+ *
+ * <p>
+ * The operations return new sets and leave their operands unchanged. A set is
+ * not thread-safe.
+ *
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * SparseBitSet withPosition = new SparseBitSet();
+ * withPosition.add(3);
+ * withPosition.add(4097);
+ * SparseBitSet matching = withPosition.andNot(withStatic);
+ * matching.forEach(id -&gt; visit(id));
+ * </pre>
+ *
+ * @author Ethan Temprovich
+ */
+public final class SparseBitSet {
+
+	private static final int WORD_SHIFT = 6;
+
+	private int[] m_positions;
+	private long[] m_words;
+	private int m_size;
+
+	/**
+	 * Constructs a new, empty set.
+	 */
+	public SparseBitSet() {
+		this(new int[4], new long[4], 0);
+	}
+
+	private SparseBitSet(int[] positions, long[] words, int size) {
+		this.m_positions = positions;
+		this.m_words = words;
+		this.m_size = size;
+	}
+
+	/**
+	 * Adds the specified value to this set.
+	 *
+	 * @param value the value to add, which must not be negative
+	 */
+	public void add(int value) {
+		int position = value >>> WORD_SHIFT;
+		long bit = 1L << value;
+		if (m_size > 0 && m_positions[m_size - 1] == position) {
+			m_words[m_size - 1] |= bit;
+			return;
+		}
+		int slot = m_size > 0 && m_positions[m_size - 1] > position ? Arrays.binarySearch(m_positions, 0, m_size, position) : -(m_size + 1);
+		if (slot >= 0) {
+			m_words[slot] |= bit;
+			return;
+		}
+		slot = -(slot + 1);
+		if (m_size == m_positions.length) {
+			m_positions = Arrays.copyOf(m_positions, m_size << 1);
+			m_words = Arrays.copyOf(m_words, m_size << 1);
+		}
+		System.arraycopy(m_positions, slot, m_positions, slot + 1, m_size - slot);
+		System.arraycopy(m_words, slot, m_words, slot + 1, m_size - slot);
+		m_positions[slot] = position;
+		m_words[slot] = bit;
+		m_size++;
+	}
+
+	/**
+	 * Returns whether this set holds the specified value.
+	 *
+	 * @param value the value to look for
+	 * @return true if the value is in this set, false otherwise
+	 */
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+		int slot = Arrays.binarySearch(m_positions, 0, m_size, value >>> WORD_SHIFT);
+		return slot >= 0 && (m_words[slot] & (1L << value)) != 0;
+	}
+
+	/**
+	 * Returns the values held by both this set and the specified one.
+	 *
+	 * @param other the set to intersect with
+	 * @return a new set of the common values
+	 */
+	public SparseBitSet and(SparseBitSet other) {
+		int capacity = Math.max(1, Math.min(m_size, other.m_size));
+		SparseBitSet result = new SparseBitSet(new int[capacity], new long[capacity], 0);
+		for (int i = 0, j = 0; i < m_size && j < other.m_size;) {
+			int position = m_positions[i];
+			int otherPosition = other.m_positions[j];
+			if (position < otherPosition) {
+				i++;
+			} else if (position > otherPosition) {
+				j++;
+			} else {
+				result.append(position, m_words[i++] & other.m_words[j++]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the values of this set that the specified one does not hold.
+	 *
+	 * @param other the set of the values to leave out
+	 * @return a new set of the remaining values
+	 */
+	public SparseBitSet andNot(SparseBitSet other) {
+		SparseBitSet result = new SparseBitSet(new int[Math.max(1, m_size)], new long[Math.max(1, m_size)], 0);
+		for (int i = 0, j = 0; i < m_size; i++) {
+			int position = m_positions[i];
+			while (j < other.m_size && other.m_positions[j] < position) {
+				j++;
+			}
+			long word = m_words[i];
+			if (j < other.m_size && other.m_positions[j] == position) {
+				word &= ~other.m_words[j];
+			}
+			result.append(position, word);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the values held by this set, the specified one, or both.
+	 *
+	 * @param other the set to unite with
+	 * @return a new set of the values of both sets
+	 */
+	public SparseBitSet or(SparseBitSet other) {
+		int capacity = Math.max(1, m_size + other.m_size);
+		SparseBitSet result = new SparseBitSet(new int[capacity], new long[capacity], 0);
+		int i = 0;
+		int j = 0;
+		while (i < m_size || j < other.m_size) {
+			int position = i < m_size ? m_positions[i] : Integer.MAX_VALUE;
+			int otherPosition = j < other.m_size ? other.m_positions[j] : Integer.MAX_VALUE;
+			if (position < otherPosition) {
+				result.append(position, m_words[i++]);
+			} else if (position > otherPosition) {
+				result.append(otherPosition, other.m_words[j++]);
+			} else {
+				result.append(position, m_words[i++] | other.m_words[j++]);
+			}
+		}
+		return result;
+	}
+
+	private void append(int position, long word) {
+		if (word != 0) {
+			m_positions[m_size] = position;
+			m_words[m_size] = word;
+			m_size++;
+		}
+	}
+
+	/**
+	 * Performs the action for each value of this set, in increasing order.
+	 *
+	 * @param action the action to perform
+	 */
+	public void forEach(IntConsumer action) {
+		for (int i = 0; i < m_size; i++) {
+			int base = m_positions[i] << WORD_SHIFT;
+			for (long word = m_words[i]; word != 0; word &= word - 1) {
+				action.accept(base + Long.numberOfTrailingZeros(word));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of values of this set.
+	 *
+	 * @return the number of values
+	 */
+	public int cardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < m_size; i++) {
+			cardinality += Long.bitCount(m_words[i]);
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns whether this set holds no value.
+	 *
+	 * @return true if the set is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return m_size == 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("SparseBitSet[");
+		forEach(value -> sb.append(sb.length() > "SparseBitSet[".length() ? ", " : "").append(value));
+		return sb.append(']').toString();
+	}
+}
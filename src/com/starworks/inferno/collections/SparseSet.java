@@ -0,0 +1,246 @@
+package com.starworks.inferno.collections;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A map from non-negative int keys to values, backed by a sparse array of
+ * positions and a dense array of keys and values.
+ *
+ * <p>
+ * Insertion, lookup and removal are all O(1): the sparse array maps a key onto
+ * its position in the dense arrays, and removing a key moves the last dense
+ * entry into the vacated position. The dense arrays are therefore always packed,
+ * so iterating over the entries visits exactly {@link #size()} of them.
+ *
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * SparseSet&lt;Stunned&gt; stunned = new SparseSet&lt;Stunned&gt;();
+ * stunned.put(HandleTable.indexOf(handle), new Stunned());
+ * if (stunned.contains(HandleTable.indexOf(handle))) {
+ * 	stunned.remove(HandleTable.indexOf(handle));
+ * }
+ * </pre>
+ *
+ * @param <T> the type of the values of the set.
+ * @author Ethan Temprovich
+ */
+public final class SparseSet<T> {
+
+	/** The default capacity of the dense arrays of a set. */
+	public static final int DEFAULT_CAPACITY = 1 << 6;
+
+	private int[] m_sparse;
+	private int[] m_dense;
+	private Object[] m_values;
+	private int m_size;
+	private final StampedLock m_lock;
+
+	/**
+	 * Constructs a new, empty set with the default capacity.
+	 */
+	public SparseSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new, empty set with the specified initial capacity.
+	 *
+	 * @param initialCapacity the initial capacity of the dense arrays
+	 */
+	public SparseSet(int initialCapacity) {
+		int capacity = Math.max(1, initialCapacity);
+		this.m_sparse = new int[capacity];
+		this.m_dense = new int[capacity];
+		this.m_values = new Object[capacity];
+		this.m_size = 0;
+		this.m_lock = new StampedLock();
+	}
+
+	/**
+	 * Associates the specified value with the specified key.
+	 *
+	 * @param key   the key, which must not be negative
+	 * @param value the value to associate with the key
+	 * @return the value previously associated with the key, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public T put(int key, T value) {
+		long stamp = m_lock.writeLock();
+		try {
+			if (key >= m_sparse.length) {
+				m_sparse = Arrays.copyOf(m_sparse, Math.max(key + 1, m_sparse.length << 1));
+			}
+			int position = m_sparse[key] - 1;
+			if (position >= 0) {
+				Object previous = m_values[position];
+				m_values[position] = value;
+				return (T) previous;
+			}
+			if (m_size == m_dense.length) {
+				m_dense = Arrays.copyOf(m_dense, m_size << 1);
+				m_values = Arrays.copyOf(m_values, m_size << 1);
+			}
+			m_dense[m_size] = key;
+			m_values[m_size] = value;
+			m_sparse[key] = ++m_size;
+			return null;
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the value associated with the specified key.
+	 *
+	 * @param key the key
+	 * @return the value associated with the key, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int key) {
+		long stamp = m_lock.tryOptimisticRead();
+		Object value = valueOf(key);
+		if (!m_lock.validate(stamp)) {
+			stamp = m_lock.readLock();
+			try {
+				value = valueOf(key);
+			} finally {
+				m_lock.unlockRead(stamp);
+			}
+		}
+		return (T) value;
+	}
+
+	private Object valueOf(int key) {
+		int[] sparse = m_sparse;
+		Object[] values = m_values;
+		if (key < 0 || key >= sparse.length) {
+			return null;
+		}
+		int position = sparse[key] - 1;
+		return position >= 0 && position < values.length ? values[position] : null;
+	}
+
+	/**
+	 * Returns whether a value is associated with the specified key.
+	 *
+	 * @param key the key
+	 * @return true if the set contains the key, false otherwise
+	 */
+	public boolean contains(int key) {
+		long stamp = m_lock.tryOptimisticRead();
+		boolean contains = positionOf(key) >= 0;
+		if (!m_lock.validate(stamp)) {
+			stamp = m_lock.readLock();
+			try {
+				contains = positionOf(key) >= 0;
+			} finally {
+				m_lock.unlockRead(stamp);
+			}
+		}
+		return contains;
+	}
+
+	private int positionOf(int key) {
+		int[] sparse = m_sparse;
+		return key < 0 || key >= sparse.length ? -1 : sparse[key] - 1;
+	}
+
+	/**
+	 * Removes the value associated with the specified key, moving the last entry
+	 * of the dense arrays into its position.
+	 *
+	 * @param key the key
+	 * @return the removed value, or null if the set did not contain the key
+	 */
+	@SuppressWarnings("unchecked")
+	public T remove(int key) {
+		long stamp = m_lock.writeLock();
+		try {
+			int position = positionOf(key);
+			if (position < 0) {
+				return null;
+			}
+			Object removed = m_values[position];
+			int last = --m_size;
+			if (position != last) {
+				int movedKey = m_dense[last];
+				m_dense[position] = movedKey;
+				m_values[position] = m_values[last];
+				m_sparse[movedKey] = position + 1;
+			}
+			m_values[last] = null;
+			m_sparse[key] = 0;
+			return (T) removed;
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the key stored at the specified position of the dense arrays.
+	 *
+	 * @param position the position, less than {@link #size()}
+	 * @return the key at the position
+	 */
+	public int keyAt(int position) {
+		return m_dense[position];
+	}
+
+	/**
+	 * Returns the value stored at the specified position of the dense arrays.
+	 *
+	 * @param position the position, less than {@link #size()}
+	 * @return the value at the position
+	 */
+	@SuppressWarnings("unchecked")
+	public T valueAt(int position) {
+		return (T) m_values[position];
+	}
+
+	/**
+	 * Returns the number of keys in the set.
+	 *
+	 * @return the number of keys in the set
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * Returns whether the set contains no keys.
+	 *
+	 * @return true if the set is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return m_size == 0;
+	}
+
+	/**
+	 * Removes all keys from the set.
+	 */
+	public void clear() {
+		long stamp = m_lock.writeLock();
+		try {
+			Arrays.fill(m_sparse, 0);
+			Arrays.fill(m_values, 0, m_size, null);
+			m_size = 0;
+		} finally {
+			m_lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("SparseSet[size=").append(m_size).append(", entries={");
+		for (int i = 0; i < m_size; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(m_dense[i]).append('=').append(m_values[i]);
+		}
+		sb.append("}]");
+		return sb.toString();
+	}
+}
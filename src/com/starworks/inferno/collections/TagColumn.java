@@ -0,0 +1,130 @@
+package com.starworks.inferno.collections;
+
+import java.lang.reflect.Modifier;
+
+import com.starworks.inferno.util.UnsafeSupport;
+
+/**
+ * A {@link Column} of a tag type: a type without any instance field, such as an
+ * empty record or a marker class.
+ *
+ * <p>
+ * All instances of a tag type are interchangeable, so a tag column stores
+ * nothing per row. The presence of the tag is recorded by the signature of the
+ * archetype alone, and every row reads the same canonical instance of the type.
+ * A single column serves every chunk of every archetype storing the tag: its
+ * {@link #factory(Class) factory} hands out the same instance whatever the
+ * capacity requested.
+ *
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * record Rigidbody() {}
+ *
+ * if (TagColumn.isTag(Rigidbody.class)) {
+ * 	Column.Factory factory = TagColumn.factory(Rigidbody.class);
+ * }
+ * </pre>
+ *
+ * @author Ethan Temprovich
+ */
+public final class TagColumn extends Column {
+
+	private final Object m_value;
+
+	private TagColumn(Object value) {
+		this.m_value = value;
+	}
+
+	/**
+	 * Returns whether the specified type is a tag: a record or a concrete,
+	 * non-array class that declares no instance field, nor inherits any.
+	 *
+	 * @param type the type to check
+	 * @return true if the type is a tag, false otherwise
+	 */
+	public static boolean isTag(Class<?> type) {
+		if (type == null || type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum() || Modifier.isAbstract(type.getModifiers())) {
+			return false;
+		}
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (var f : c.getDeclaredFields()) {
+				if ((f.getModifiers() & Modifier.STATIC) == 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a factory handing out a single column of the specified tag type,
+	 * reading a canonical instance of the type at every row.
+	 *
+	 * @param type the tag type
+	 * @return the factory of the column of the tag type
+	 * @throws IllegalArgumentException if the type is not a tag
+	 */
+	public static Column.Factory factory(Class<?> type) {
+		if (!isTag(type)) {
+			throw new IllegalArgumentException(type.getName() + " declares instance fields");
+		}
+		Object value;
+		try {
+			value = UnsafeSupport.getUnsafe().allocateInstance(type);
+		} catch (InstantiationException e) {
+			throw new IllegalArgumentException("Unable to instantiate " + type.getName(), e);
+		}
+		TagColumn column = new TagColumn(value);
+		return capacity -> column;
+	}
+
+	/**
+	 * Returns the canonical instance of the tag type, whatever the row.
+	 */
+	@Override
+	public Object get(int row) {
+		return m_value;
+	}
+
+	/**
+	 * Does nothing, as the tag stores no value per row.
+	 */
+	@Override
+	public void set(int row, Object value) {
+	}
+
+	@Override
+	public void move(int from, int to) {
+	}
+
+	@Override
+	public void copy(int from, Column target, int to) {
+		if (target != this) {
+			target.set(to, m_value);
+		}
+	}
+
+	@Override
+	public void clear(int row) {
+	}
+
+	@Override
+	public boolean isUniform() {
+		return true;
+	}
+
+	/**
+	 * Returns {@link Integer#MAX_VALUE}, as the column holds any number of rows.
+	 */
+	@Override
+	public int capacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return "TagColumn[" + m_value.getClass().getName() + "]";
+	}
+}
@@ -3,6 +3,7 @@ package com.starworks.inferno.util;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.Buffer;
 import java.util.Objects;
 
 import sun.misc.Unsafe;
@@ -70,6 +71,7 @@ public final class UnsafeSupport {
     public static final int ARRAY_FLOAT_INDEX_SCALE = unsafe.arrayIndexScale(float[].class);
     public static final int ARRAY_DOUBLE_INDEX_SCALE = unsafe.arrayIndexScale(double[].class);
     public static final int ARRAY_OBJECT_INDEX_SCALE = unsafe.arrayIndexScale(Object[].class);
+    private static final long BUFFER_ADDRESS_OFFSET = bufferAddressOffset();
 
     private UnsafeSupport() {
         throw new SecurityException("UnsafeSupport is a utility class and may NOT be instantiated");
@@ -111,7 +113,7 @@ public final class UnsafeSupport {
         return round8(maxSize);
     }
 
-    private static long sizeOfField(Class<?> fieldType) {
+    public static long sizeOfField(Class<?> fieldType) {
         if (fieldType == boolean.class || fieldType == byte.class) {
             return 1;
         } else if (fieldType == char.class || fieldType == short.class) {
@@ -187,4 +189,19 @@ public final class UnsafeSupport {
     public static long objectFieldOffset(Field f) {
         return unsafe.objectFieldOffset(f);
     }
+
+    public static long addressOf(Buffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Only direct buffers have an address");
+        }
+        return unsafe.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+    }
+
+    private static long bufferAddressOffset() {
+        try {
+            return unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Buffer address unavailable", e);
+        }
+    }
 }
\ No newline at end of file